@@ -3,13 +3,20 @@ package dev.qrowned.npc.api;
 import com.comphenix.protocol.wrappers.EnumWrappers;
 import com.comphenix.protocol.wrappers.WrappedGameProfile;
 import com.comphenix.protocol.wrappers.WrappedSignedProperty;
+import com.comphenix.protocol.wrappers.WrappedWatchableObject;
 import com.google.common.base.Preconditions;
 import dev.qrowned.npc.api.data.NPCData;
+import dev.qrowned.npc.api.event.NPCEventDispatcher;
 import dev.qrowned.npc.api.event.PlayerNPCHideEvent;
 import dev.qrowned.npc.api.event.PlayerNPCShowEvent;
 import dev.qrowned.npc.api.handler.NPCHandler;
 import dev.qrowned.npc.api.modifier.*;
+import dev.qrowned.npc.api.utils.ConcurrentBitSet;
+import dev.qrowned.npc.api.utils.ConcurrentIntArray;
+import dev.qrowned.npc.api.utils.PlayerSessions;
 import dev.qrowned.npc.api.utils.SpawnModifier;
+import dev.qrowned.npc.api.utils.TimingWheel;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.bukkit.Bukkit;
@@ -17,10 +24,13 @@ import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a non-player character which can be configured via {@link NPCData}
@@ -29,27 +39,54 @@ import java.util.concurrent.CopyOnWriteArrayList;
 @Setter
 public class NPC {
 
-    private final List<UUID> showedPlayers = new CopyOnWriteArrayList<>();
-    private final List<UUID> excludedPlayers = new CopyOnWriteArrayList<>();
+    /**
+     * The ticks between adding a npc to the player list of a player and spawning it, giving the
+     * client time to load the skin.
+     */
+    public static final long SPAWN_DELAY_TICKS = 10L;
+
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentBitSet showedSessions = new ConcurrentBitSet();
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentBitSet excludedSessions = new ConcurrentBitSet();
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentIntArray sentRotations = new ConcurrentIntArray();
+    @Getter(AccessLevel.NONE)
+    private final Map<Integer, Map<Integer, Object>> knownMetadata = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final Map<UUID, TimingWheel.Timeout> pendingSpawns = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final Map<UUID, TimingWheel.Timeout> pendingListRemovals = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final PlayerSessions.SessionListener sessionListener = this::forgetSession;
 
     private final int entityId;
 
     private final NPCData npcData;
     private final WrappedGameProfile wrappedGameProfile;
+    private final PacketTemplates packetTemplates = new PacketTemplates(this);
+    private final NPCState state = new NPCState(this);
 
     private final Location location;
     private final SpawnModifier spawnModifier;
 
+    private final NPCHandler handler;
+
     private boolean lookAtPlayers;
     private boolean imitatePlayers;
 
     public NPC(int entityId, NPCData npcData, Location location, SpawnModifier spawnModifier, boolean lookAtPlayers, boolean imitatePlayers) {
+        this(entityId, npcData, location, spawnModifier, lookAtPlayers, imitatePlayers, null);
+    }
+
+    public NPC(int entityId, NPCData npcData, Location location, SpawnModifier spawnModifier, boolean lookAtPlayers, boolean imitatePlayers, NPCHandler handler) {
         this.entityId = entityId;
         this.npcData = npcData;
         this.location = location;
         this.spawnModifier = spawnModifier;
         this.lookAtPlayers = lookAtPlayers;
         this.imitatePlayers = imitatePlayers;
+        this.handler = handler;
         this.wrappedGameProfile = this.convertProfile(npcData);
     }
 
@@ -68,26 +105,74 @@ public class NPC {
      *                    removed from the player list.
      */
     public void show(@NotNull Player player, @NotNull Plugin plugin, long removeTicks) {
-        this.showedPlayers.add(player.getUniqueId());
+        this.show(player, plugin, removeTicks, true);
+    }
+
+    /**
+     * Shows this npc to a player.
+     *
+     * @param player           The player to show this npc to.
+     * @param plugin           The plugin requesting the change.
+     * @param removeTicks      The ticks before removing the player from the player list after
+     *                         spawning. A negative value indicates that this npc shouldn't get
+     *                         removed from the player list.
+     * @param playerListChange If this npc should add and remove its player list entry itself. If
+     *                         not, the caller has to add the entry before the npc is spawned after
+     *                         {@link #SPAWN_DELAY_TICKS}, e.g. batched with the entries of other
+     *                         npcs, and is responsible for removing it again.
+     */
+    public void show(@NotNull Player player, @NotNull Plugin plugin, long removeTicks, boolean playerListChange) {
+        int index = this.attachSession(player);
+        if (index < 0) {
+            // the player already left
+            return;
+        }
+
+        this.showedSessions.set(index);
+        if (this.handler != null) {
+            this.handler.handleShow(this, player);
+        }
 
         VisibilityModifier visibilityModifier = VisibilityModifier.create(this);
-        visibilityModifier.queuePlayerListChange(EnumWrappers.PlayerInfoAction.ADD_PLAYER).send(player);
-
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
-            visibilityModifier.queueSpawn().send(player);
-            this.spawnModifier.handleSpawn(this, player);
-
-            if (removeTicks >= 0) {
-                Bukkit.getScheduler().runTaskLater(
-                        plugin,
-                        () -> visibilityModifier
-                                .queuePlayerListChange(EnumWrappers.PlayerInfoAction.REMOVE_PLAYER).send(player),
-                        removeTicks
-                );
+        if (playerListChange) {
+            this.send(visibilityModifier.queuePlayerListChange(EnumWrappers.PlayerInfoAction.ADD_PLAYER), player);
+        }
+
+        UUID uuid = player.getUniqueId();
+        this.cancelPendingTasks(uuid);
+
+        TimingWheel.Timeout[] spawnTimeout = new TimingWheel.Timeout[1];
+        spawnTimeout[0] = this.schedule(plugin, () -> {
+            this.pendingSpawns.remove(uuid, spawnTimeout[0]);
+            this.forgetSentState(player);
+            this.send(visibilityModifier.queueSpawn(), player);
+            if (!this.isShownFor(player)) {
+                // hidden while spawning, the destroy of the hide might have been sent before the spawn
+                this.send(VisibilityModifier.create(this).queueDestroy(), player);
+                return;
+            }
+            for (WrappedWatchableObject watchableObject : this.state.getMetadata()) {
+                this.updateKnownMetadata(player, watchableObject.getIndex(), watchableObject.getRawValue());
+            }
+            // the spawn modifier customizes the npc for this player only
+            AbstractModifier.runViewerSpecific(() -> this.spawnModifier.handleSpawn(this, player));
+            if (this.handler != null) {
+                this.handler.handleSpawn(this, player);
             }
 
-            Bukkit.getPluginManager().callEvent(new PlayerNPCShowEvent(player, this));
-        }, 10L);
+            if (playerListChange && removeTicks >= 0) {
+                TimingWheel.Timeout[] removeTimeout = new TimingWheel.Timeout[1];
+                removeTimeout[0] = this.schedule(plugin, () -> {
+                    this.pendingListRemovals.remove(uuid, removeTimeout[0]);
+                    this.send(VisibilityModifier.create(this)
+                            .queuePlayerListChange(EnumWrappers.PlayerInfoAction.REMOVE_PLAYER), player);
+                }, removeTicks);
+                this.pendingListRemovals.put(uuid, removeTimeout[0]);
+            }
+
+            this.dispatchShowEvent(player);
+        }, SPAWN_DELAY_TICKS);
+        this.pendingSpawns.put(uuid, spawnTimeout[0]);
     }
 
     /**
@@ -101,15 +186,149 @@ public class NPC {
             @NotNull Player player,
             @NotNull Plugin plugin,
             @NotNull PlayerNPCHideEvent.Reason reason) {
-        VisibilityModifier.create(this)
-                .queuePlayerListChange(EnumWrappers.PlayerInfoAction.REMOVE_PLAYER)
-                .queueDestroy()
-                .send(player);
+        this.hide(player, plugin, reason, true);
+    }
+
+    /**
+     * Hides this npc from a player.
+     *
+     * @param player           The player to hide the npc for.
+     * @param plugin           The plugin requesting the change.
+     * @param reason           The reason why the npc was hidden for the player.
+     * @param playerListChange If this npc should remove its player list entry itself. If not, the
+     *                         caller is responsible for removing it, e.g. batched with the entries
+     *                         of other npcs.
+     */
+    public void hide(
+            @NotNull Player player,
+            @NotNull Plugin plugin,
+            @NotNull PlayerNPCHideEvent.Reason reason,
+            boolean playerListChange) {
+        // marked first, so that a spawn running at the same time notices the hide
+        this.markHidden(player, plugin, reason);
+
+        VisibilityModifier visibilityModifier = VisibilityModifier.create(this);
+        if (playerListChange) {
+            visibilityModifier.queuePlayerListChange(EnumWrappers.PlayerInfoAction.REMOVE_PLAYER);
+        }
+        this.send(visibilityModifier.queueDestroy(), player);
+    }
+
+    /**
+     * Marks this npc as hidden from a player without sending any packets. The caller is responsible
+     * for removing the player list entry and destroying the npc on the client of the player, e.g.
+     * with a single packet covering multiple npcs.
+     *
+     * @param player The player the npc was hidden for.
+     * @param plugin The plugin requesting the change.
+     * @param reason The reason why the npc was hidden for the player.
+     */
+    public void markHidden(
+            @NotNull Player player,
+            @NotNull Plugin plugin,
+            @NotNull PlayerNPCHideEvent.Reason reason) {
+        int index = PlayerSessions.getIndex(player.getUniqueId());
+        if (index >= 0) {
+            this.showedSessions.clear(index);
+        }
+        this.forgetSentState(player);
+        if (this.handler != null) {
+            this.handler.handleHide(this, player);
+        }
+
+        // a spawn or player list removal which is still pending must not overtake the hide
+        this.cancelPendingTasks(player.getUniqueId());
+
+        this.dispatchHideEvent(player, plugin, reason);
+    }
+
+    /**
+     * Queues the packets of a modifier in the packet batcher of the handler of this npc, keeping them
+     * in order with the other visibility packets of the handler until the handler flushes them with
+     * the next tick, or sends them directly if there is none.
+     *
+     * @param modifier The modifier holding the queued packets.
+     * @param player   The receiver of the packets.
+     */
+    private void send(@NotNull AbstractModifier modifier, @NotNull Player player) {
+        PacketBatcher packetBatcher = this.handler == null ? null : this.handler.getPacketBatcher();
+        if (packetBatcher == null) {
+            modifier.send(player);
+            return;
+        }
+
+        modifier.send(packetBatcher, player);
+    }
+
+    /**
+     * Calls the show event through the event dispatcher of the handler of this npc, or directly if
+     * there is none. Must be called on the main thread.
+     *
+     * @param player The player this npc was shown to.
+     */
+    private void dispatchShowEvent(@NotNull Player player) {
+        NPCEventDispatcher eventDispatcher = this.handler == null ? null : this.handler.getEventDispatcher();
+        if (eventDispatcher != null) {
+            eventDispatcher.dispatchShow(player, this);
+        } else if (NPCEventDispatcher.hasListeners(PlayerNPCShowEvent.getHandlerList())) {
+            Bukkit.getPluginManager().callEvent(new PlayerNPCShowEvent(player, this));
+        }
+    }
+
+    /**
+     * Calls the hide event through the event dispatcher of the handler of this npc, or in the next
+     * tick if there is none.
+     *
+     * @param player The player this npc was hidden from.
+     * @param plugin The plugin requesting the change.
+     * @param reason The reason why the npc was hidden for the player.
+     */
+    private void dispatchHideEvent(@NotNull Player player, @NotNull Plugin plugin, @NotNull PlayerNPCHideEvent.Reason reason) {
+        NPCEventDispatcher eventDispatcher = this.handler == null ? null : this.handler.getEventDispatcher();
+        if (eventDispatcher != null) {
+            eventDispatcher.dispatchHide(player, this, reason);
+        } else if (NPCEventDispatcher.hasListeners(PlayerNPCHideEvent.getHandlerList())) {
+            this.schedule(plugin,
+                    () -> Bukkit.getPluginManager().callEvent(new PlayerNPCHideEvent(player, this, reason)), 0L);
+        }
+    }
+
+    /**
+     * Cancels the spawn and player list removal which are still pending for a player.
+     *
+     * @param uuid The unique id of the player.
+     */
+    private void cancelPendingTasks(@NotNull UUID uuid) {
+        TimingWheel.Timeout pendingSpawn = this.pendingSpawns.remove(uuid);
+        if (pendingSpawn != null) {
+            pendingSpawn.cancel();
+        }
+
+        TimingWheel.Timeout pendingListRemoval = this.pendingListRemovals.remove(uuid);
+        if (pendingListRemoval != null) {
+            pendingListRemoval.cancel();
+        }
+    }
 
-        this.showedPlayers.remove(player.getUniqueId());
+    /**
+     * Schedules a task in the timing wheel of the handler of this npc, falling back to the scheduler
+     * of bukkit if there is none.
+     *
+     * @param plugin     The plugin scheduling the task.
+     * @param task       The task to run.
+     * @param delayTicks The ticks to wait before running the task.
+     * @return the timeout of the task, allowing to cancel it
+     */
+    @NotNull
+    private TimingWheel.Timeout schedule(@NotNull Plugin plugin, @NotNull Runnable task, long delayTicks) {
+        TimingWheel timingWheel = this.handler == null ? null : this.handler.getTimingWheel();
+        if (timingWheel != null) {
+            return timingWheel.schedule(task, delayTicks);
+        }
 
-        Bukkit.getScheduler().runTask(plugin,
-                () -> Bukkit.getPluginManager().callEvent(new PlayerNPCHideEvent(player, this, reason)));
+        TimingWheel.Timeout timeout = new TimingWheel.Timeout(task);
+        Bukkit.getScheduler().runTaskLater(plugin, timeout, delayTicks);
+        return timeout;
     }
 
     /**
@@ -135,7 +354,10 @@ public class NPC {
      * @param player the player to exclude
      */
     public void exclude(@NotNull Player player) {
-        this.excludedPlayers.add(player.getUniqueId());
+        int index = this.attachSession(player);
+        if (index >= 0) {
+            this.excludedSessions.set(index);
+        }
     }
 
     /**
@@ -144,7 +366,124 @@ public class NPC {
      * @param player the player to "unexclude"
      */
     public void unExclude(@NotNull Player player) {
-        this.excludedPlayers.remove(player.getUniqueId());
+        int index = PlayerSessions.getIndex(player.getUniqueId());
+        if (index >= 0) {
+            this.excludedSessions.clear(index);
+        }
+    }
+
+    /**
+     * Forgets the visibility and exclusion state of a player who left the server, without sending
+     * any packets.
+     *
+     * @param player the player to forget
+     */
+    public void forget(@NotNull Player player) {
+        int index = PlayerSessions.getIndex(player.getUniqueId());
+        if (index >= 0) {
+            this.forgetSession(index, player.getUniqueId());
+        } else {
+            this.cancelPendingTasks(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Forgets all state stored for a session index, called once the index is released.
+     *
+     * @param index    The session index.
+     * @param uniqueId The unique id of the player the index was assigned to, if known.
+     */
+    private void forgetSession(int index, @Nullable UUID uniqueId) {
+        this.showedSessions.clear(index);
+        this.excludedSessions.clear(index);
+        this.sentRotations.getAndSet(index, 0);
+        this.knownMetadata.remove(index);
+
+        if (uniqueId != null) {
+            this.cancelPendingTasks(uniqueId);
+        }
+    }
+
+    /**
+     * Get the session index of a player and attach this npc to it, so that the state stored for the
+     * player is cleared once the player left.
+     *
+     * @param player The player.
+     * @return the session index or -1 if the player is offline
+     */
+    private int attachSession(@NotNull Player player) {
+        int index = PlayerSessions.getOrCreateIndex(player);
+        if (index >= 0) {
+            PlayerSessions.attach(index, this.sessionListener);
+        }
+        return index;
+    }
+
+    /**
+     * Remembers the rotation angles sent to a player, allowing to skip sending unchanged rotations.
+     *
+     * @param player The player the rotation is sent to.
+     * @param angles The packed angles, as computed by {@link RotationModifier#lookAtAngles(Location, Location)}.
+     * @return if the angles differ from the ones sent to the player before, always true for players
+     * without a session
+     */
+    public boolean updateSentRotation(@NotNull Player player, int angles) {
+        int index = PlayerSessions.getIndex(player.getUniqueId());
+        if (index < 0) {
+            return true;
+        }
+
+        int packed = angles & 0xFFFF | 0x10000;
+        int previous = this.sentRotations.getAndSet(index, packed);
+        if (previous == 0) {
+            PlayerSessions.attach(index, this.sessionListener);
+        }
+        return previous != packed;
+    }
+
+    /**
+     * Forgets the rotation angles sent to all players, as a rotation sent to players without being
+     * remembered for each of them may have replaced them.
+     */
+    public void forgetSentRotations() {
+        this.sentRotations.clear();
+    }
+
+    /**
+     * Remembers a metadata value sent to a player, allowing to skip sending values the player already
+     * knows.
+     *
+     * @param player The player the value is sent to.
+     * @param index  The index of the value in the data watcher.
+     * @param value  The value.
+     * @return if the value differs from the one sent to the player before, always true for players
+     * without a session
+     */
+    public boolean updateKnownMetadata(@NotNull Player player, int index, @NotNull Object value) {
+        int sessionIndex = PlayerSessions.getIndex(player.getUniqueId());
+        if (sessionIndex < 0) {
+            return true;
+        }
+
+        Map<Integer, Object> knownMetadata = this.knownMetadata.computeIfAbsent(sessionIndex, session -> {
+            PlayerSessions.attach(session, this.sessionListener);
+            return new ConcurrentHashMap<>();
+        });
+        return !value.equals(knownMetadata.put(index, value));
+    }
+
+    /**
+     * Forgets the rotation and metadata sent to a player, as the client forgets them once the npc is
+     * destroyed or spawned again.
+     *
+     * @param player The player to forget the sent state of.
+     */
+    private void forgetSentState(@NotNull Player player) {
+        int index = PlayerSessions.getIndex(player.getUniqueId());
+        if (index >= 0) {
+            this.sentRotations.getAndSet(index, 0);
+            this.knownMetadata.remove(index);
+        }
     }
 
     /**
@@ -154,7 +493,18 @@ public class NPC {
      * @return If the npc is shown for the given {@code player}.
      */
     public boolean isShownFor(@NotNull Player player) {
-        return this.showedPlayers.contains(player.getUniqueId());
+        int index = PlayerSessions.getIndex(player.getUniqueId());
+        return index >= 0 && this.showedSessions.get(index);
+    }
+
+    /**
+     * Get if this npc is shown for the given {@code player}, but not spawned yet.
+     *
+     * @param player The player to check.
+     * @return If the spawn of this npc for the given {@code player} is still pending.
+     */
+    public boolean isSpawnPending(@NotNull Player player) {
+        return this.isShownFor(player) && this.pendingSpawns.containsKey(player.getUniqueId());
     }
 
     /**
@@ -164,7 +514,30 @@ public class NPC {
      * @return if the specified {@code player} is explicitly not allowed to see this npc.
      */
     public boolean isExcluded(@NotNull Player player) {
-        return this.excludedPlayers.contains(player.getUniqueId());
+        int index = PlayerSessions.getIndex(player.getUniqueId());
+        return index >= 0 && this.excludedSessions.get(index);
+    }
+
+    /**
+     * Get the players this npc is shown to.
+     *
+     * @return a read only view of the unique ids of the players this npc is shown to
+     */
+    @NotNull
+    @Unmodifiable
+    public List<UUID> getShowedPlayers() {
+        return PlayerSessions.view(this.showedSessions);
+    }
+
+    /**
+     * Get the players which are explicitly not allowed to see this npc.
+     *
+     * @return a read only view of the unique ids of the excluded players
+     */
+    @NotNull
+    @Unmodifiable
+    public List<UUID> getExcludedPlayers() {
+        return PlayerSessions.view(this.excludedSessions);
     }
 
     /**
@@ -282,8 +655,10 @@ public class NPC {
 
         /**
          * Sets an executor which will be called every time the NPC is spawned for a certain player.
-         * Permanent NPC modifications should be done in this method, otherwise they will be lost at the
-         * next respawn of the NPC.
+         * Metadata, equipment and rotation queued through the modifiers of the NPC are kept in its
+         * {@link NPCState} and sent on every spawn anyway, this method is meant for per-player
+         * modifications. Modifiers created by the executor are viewer specific and do not change the
+         * {@link NPCState}.
          *
          * @param spawnModifier the spawn customizer which will be called on every spawn
          * @return this builder instance
@@ -312,7 +687,8 @@ public class NPC {
                     this.location,
                     this.spawnCustomizer,
                     this.lookAtPlayer,
-                    this.imitatePlayer);
+                    this.imitatePlayer,
+                    handler);
             handler.handleNPC(npc);
 
             return npc;
@@ -1,8 +1,8 @@
 package dev.qrowned.npc.api.data;
 
 import com.google.common.base.Preconditions;
-import com.google.gson.*;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -10,27 +10,17 @@ import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
 
 public class NPCData implements Cloneable {
 
-    private static final ThreadLocal<Gson> GSON = ThreadLocal
-            .withInitial(() -> new GsonBuilder().serializeNulls().create());
-
-    private static final String UUID_REQUEST_URL = "https://api.mojang.com/users/profiles/minecraft/%s";
-    private static final String TEXTURES_REQUEST_URL = "https://sessionserver.mojang.com/session/minecraft/profile/%s?unsigned=%b";
-
-    private static final Pattern UNIQUE_ID_PATTERN = Pattern
-            .compile("(\\w{8})(\\w{4})(\\w{4})(\\w{4})(\\w{12})");
-    private static final Type PROPERTY_LIST_TYPE = TypeToken
-            .getParameterized(Set.class, Property.class).getType();
-
     private String name;
     private UUID uniqueId;
     private Collection<Property> properties;
@@ -138,50 +128,79 @@ public class NPCData implements Cloneable {
     }
 
     /**
-     * Fills this data with all missing attributes
+     * Fills this data with all missing attributes, blocking until the profile was resolved.
      *
      * @param propertiesAndName if properties and name should be filled for this data
      * @return if the data was successfully completed
      */
     public boolean complete(boolean propertiesAndName) {
-        if (this.isComplete() && this.hasProperties()) {
-            return true;
+        try {
+            return this.completeAsync(propertiesAndName).join();
+        } catch (CompletionException | CancellationException exception) {
+            exception.printStackTrace();
+            return false;
         }
+    }
 
-        if (this.uniqueId == null) {
-            JsonElement identifierElement = this.makeRequest(String.format(UUID_REQUEST_URL, this.name));
-            if (identifierElement == null || !identifierElement.isJsonObject()) {
-                return false;
-            }
+    /**
+     * Fills this data with all missing attributes without blocking, using the default resolver.
+     *
+     * @return a future completed with if the data was successfully completed
+     * @see ProfileResolver#getDefault()
+     */
+    @NotNull
+    public CompletableFuture<Boolean> completeAsync() {
+        return this.completeAsync(true);
+    }
 
-            JsonObject jsonObject = identifierElement.getAsJsonObject();
-            if (jsonObject.has("id")) {
-                this.uniqueId = UUID.fromString(
-                        UNIQUE_ID_PATTERN.matcher(jsonObject.get("id").getAsString())
-                                .replaceAll("$1-$2-$3-$4-$5"));
-            } else {
-                return false;
-            }
+    /**
+     * Fills this data with all missing attributes without blocking, using the default resolver.
+     *
+     * @param propertiesAndName if properties and name should be filled for this data
+     * @return a future completed with if the data was successfully completed
+     * @see ProfileResolver#getDefault()
+     */
+    @NotNull
+    public CompletableFuture<Boolean> completeAsync(boolean propertiesAndName) {
+        return this.completeAsync(ProfileResolver.getDefault(), propertiesAndName);
+    }
+
+    /**
+     * Fills this data with all missing attributes without blocking. Datas completed at the same time
+     * share the requests for the same name or unique id.
+     *
+     * @param resolver          the resolver requesting the missing attributes
+     * @param propertiesAndName if properties and name should be filled for this data
+     * @return a future completed with if the data was successfully completed
+     */
+    @NotNull
+    public CompletableFuture<Boolean> completeAsync(@NotNull ProfileResolver resolver, boolean propertiesAndName) {
+        if (this.isComplete() && this.hasProperties()) {
+            return CompletableFuture.completedFuture(true);
         }
 
-        if ((this.name == null || this.properties == null) && propertiesAndName) {
-            JsonElement profileElement = this.makeRequest(
-                    String.format(TEXTURES_REQUEST_URL, this.uniqueId.toString().replace("-", ""), false));
-            if (profileElement == null || !profileElement.isJsonObject()) {
-                return false;
+        CompletableFuture<UUID> uniqueIdFuture = this.uniqueId == null
+                ? resolver.resolveUniqueId(this.name)
+                : CompletableFuture.completedFuture(this.uniqueId);
+        return uniqueIdFuture.thenCompose(uniqueId -> {
+            if (uniqueId == null) {
+                return CompletableFuture.completedFuture(false);
             }
+            this.uniqueId = uniqueId;
 
-            JsonObject object = profileElement.getAsJsonObject();
-            if (object.has("name") && object.has("properties")) {
-                this.name = this.name == null ? object.get("name").getAsString() : this.name;
-                this.getProperties()
-                        .addAll(GSON.get().fromJson(object.get("properties"), PROPERTY_LIST_TYPE));
-            } else {
-                return false;
+            if ((this.name != null && this.properties != null) || !propertiesAndName) {
+                return CompletableFuture.completedFuture(true);
             }
-        }
+            return resolver.resolveProfile(uniqueId).thenApply(profile -> {
+                if (profile == null) {
+                    return false;
+                }
 
-        return true;
+                this.name = this.name == null ? profile.getName() : this.name;
+                this.getProperties().addAll(profile.getProperties());
+                return true;
+            });
+        });
     }
 
     /**
@@ -189,7 +208,10 @@ public class NPCData implements Cloneable {
      *
      * @param apiUrl The api url to make the request to.
      * @return The json element parsed from the result stream of the site.
+     * @deprecated no longer used by {@link #complete(boolean)}, which requests through a
+     * {@link ProfileResolver} instead.
      */
+    @Deprecated
     protected @Nullable
     JsonElement makeRequest(@NotNull String apiUrl) {
         try {
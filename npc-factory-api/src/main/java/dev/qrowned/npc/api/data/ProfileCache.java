@@ -0,0 +1,268 @@
+package dev.qrowned.npc.api.data;
+
+import com.google.common.base.Preconditions;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of resolved unique ids and profiles. Entries are weighted by their approximate size
+ * in memory and the least recently used entries are evicted once the maximum weight is exceeded.
+ * Results that a player does not exist expire separately from found results.
+ * <p>
+ * All access goes through one lock, as every lookup reorders the access ordered map. This is
+ * intentional: the lock is only held for a few map operations, while the resolver threads spend their
+ * time on web requests, so striping the cache would cost an approximate recency order for no
+ * measurable gain.
+ */
+public class ProfileCache {
+
+    /**
+     * The default maximum weight of the cache, about one megabyte.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 1024 * 1024;
+    /**
+     * The default time in milliseconds found results are cached.
+     */
+    public static final long DEFAULT_POSITIVE_TTL = TimeUnit.HOURS.toMillis(6);
+    /**
+     * The default time in milliseconds results that a player does not exist are cached.
+     */
+    public static final long DEFAULT_NEGATIVE_TTL = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * The approximate size in bytes of an entry without its key and value.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+    /**
+     * The approximate size in bytes of a unique id.
+     */
+    private static final int UNIQUE_ID_WEIGHT = 32;
+
+    /**
+     * The cached entries, keyed by lower case names and unique ids, in access order.
+     */
+    private final LinkedHashMap<Object, Entry<?>> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    private final long maxWeight;
+    private final long positiveTtl;
+    private final long negativeTtl;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private long weight;
+
+    private ProfileCache(long maxWeight, long positiveTtl, long negativeTtl) {
+        Preconditions.checkArgument(maxWeight > 0, "maxWeight must be positive");
+        Preconditions.checkArgument(positiveTtl >= 0 && negativeTtl >= 0, "ttl must not be negative");
+
+        this.maxWeight = maxWeight;
+        this.positiveTtl = positiveTtl;
+        this.negativeTtl = negativeTtl;
+    }
+
+    /**
+     * Creates a new cache with the default maximum weight and ttls.
+     *
+     * @return the created cache
+     */
+    @NotNull
+    public static ProfileCache create() {
+        return create(DEFAULT_MAX_WEIGHT, DEFAULT_POSITIVE_TTL, DEFAULT_NEGATIVE_TTL);
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxWeight   The maximum approximate size in bytes of all entries.
+     * @param positiveTtl The time in milliseconds found results are cached.
+     * @param negativeTtl The time in milliseconds results that a player does not exist are cached.
+     * @return the created cache
+     */
+    @NotNull
+    public static ProfileCache create(long maxWeight, long positiveTtl, long negativeTtl) {
+        return new ProfileCache(maxWeight, positiveTtl, negativeTtl);
+    }
+
+    /**
+     * Get the cached unique id of a name.
+     *
+     * @param name The name of the player.
+     * @return the cached entry or null if the name is not cached
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public Entry<UUID> getUniqueId(@NotNull String name) {
+        return (Entry<UUID>) this.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Caches the unique id of a name.
+     *
+     * @param name     The name of the player.
+     * @param uniqueId The unique id of the player or null if there is no player with the name.
+     */
+    public void putUniqueId(@NotNull String name, @Nullable UUID uniqueId) {
+        this.put(name.toLowerCase(Locale.ROOT), uniqueId, 2 * name.length() + (uniqueId == null ? 0 : UNIQUE_ID_WEIGHT));
+    }
+
+    /**
+     * Get the cached profile of a unique id.
+     *
+     * @param uniqueId The unique id of the player.
+     * @return the cached entry or null if the unique id is not cached
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public Entry<ProfileResolver.Profile> getProfile(@NotNull UUID uniqueId) {
+        return (Entry<ProfileResolver.Profile>) this.get(uniqueId);
+    }
+
+    /**
+     * Caches the profile of a unique id.
+     *
+     * @param uniqueId The unique id of the player.
+     * @param profile  The profile of the player or null if there is no player with the unique id.
+     */
+    public void putProfile(@NotNull UUID uniqueId, @Nullable ProfileResolver.Profile profile) {
+        int profileWeight = UNIQUE_ID_WEIGHT;
+        if (profile != null) {
+            profileWeight += 2 * profile.getName().length();
+            for (NPCData.Property property : profile.getProperties()) {
+                profileWeight += ENTRY_OVERHEAD + 2 * (property.getName().length() + property.getValue().length()
+                        + (property.isSigned() ? property.getSignature().length() : 0));
+            }
+        }
+        this.put(uniqueId, profile, profileWeight);
+    }
+
+    /**
+     * Removes all entries from this cache.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.weight = 0;
+    }
+
+    /**
+     * Get the amount of lookups which found an entry.
+     *
+     * @return the amount of hits
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Get the amount of lookups which found no entry or an expired one.
+     *
+     * @return the amount of misses
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Get the amount of entries removed to stay below the maximum weight.
+     *
+     * @return the amount of evictions
+     */
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Get the amount of entries in this cache, including expired entries which were not accessed since.
+     *
+     * @return the amount of entries
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Get the approximate size in bytes of all entries in this cache.
+     *
+     * @return the weight of this cache
+     */
+    public synchronized long getWeight() {
+        return this.weight;
+    }
+
+    @Nullable
+    private synchronized Entry<?> get(@NotNull Object key) {
+        Entry<?> entry = this.entries.get(key);
+        if (entry != null && entry.expiresAt - System.currentTimeMillis() <= 0) {
+            this.entries.remove(key);
+            this.weight -= entry.weight;
+            entry = null;
+        }
+
+        (entry == null ? this.misses : this.hits).increment();
+        return entry;
+    }
+
+    private synchronized void put(@NotNull Object key, @Nullable Object value, int valueWeight) {
+        long ttl = value == null ? this.negativeTtl : this.positiveTtl;
+        Entry<?> entry = new Entry<>(value, System.currentTimeMillis() + ttl, ENTRY_OVERHEAD + valueWeight);
+
+        Entry<?> previousEntry = this.entries.put(key, entry);
+        if (previousEntry != null) {
+            this.weight -= previousEntry.weight;
+        }
+        this.weight += entry.weight;
+
+        // the least recently used entries come first
+        Iterator<Entry<?>> iterator = this.entries.values().iterator();
+        while (this.weight > this.maxWeight && iterator.hasNext()) {
+            Entry<?> eldestEntry = iterator.next();
+            if (eldestEntry == entry) {
+                continue;
+            }
+            iterator.remove();
+            this.weight -= eldestEntry.weight;
+            this.evictions.increment();
+        }
+    }
+
+    /**
+     * A cached result of a lookup.
+     *
+     * @param <V> The type of the cached value.
+     */
+    public static class Entry<V> {
+
+        /**
+         * The cached value, null if there is no player for the key.
+         */
+        @Getter
+        private final V value;
+        private final long expiresAt;
+        private final int weight;
+
+        private Entry(@Nullable V value, long expiresAt, int weight) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.weight = weight;
+        }
+
+        /**
+         * Get if this entry caches that there is no player for the key.
+         *
+         * @return if this entry is a negative result
+         */
+        public boolean isNegative() {
+            return this.value == null;
+        }
+    }
+
+}
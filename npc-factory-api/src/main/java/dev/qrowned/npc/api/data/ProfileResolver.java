@@ -0,0 +1,313 @@
+package dev.qrowned.npc.api.data;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves unique ids and profiles of players from the mojang api without blocking. Concurrent
+ * requests for the same name or unique id share a single http request. The urls of the api can be
+ * changed, e.g. to resolve profiles from a local server with the same endpoints. Results are cached
+ * and looked up in the cache and the default {@link SkinStore} before any request is made.
+ */
+public class ProfileResolver {
+
+    /**
+     * The default url resolving the unique id of a name, formatted with the name.
+     */
+    public static final String UUID_REQUEST_URL = "https://api.mojang.com/users/profiles/minecraft/%s";
+    /**
+     * The default url resolving the profile of a unique id, formatted with the unique id without
+     * dashes and if the properties should be unsigned.
+     */
+    public static final String TEXTURES_REQUEST_URL = "https://sessionserver.mojang.com/session/minecraft/profile/%s?unsigned=%b";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+    private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+    private static final Pattern UNIQUE_ID_PATTERN = Pattern
+            .compile("(\\w{8})(\\w{4})(\\w{4})(\\w{4})(\\w{12})");
+    private static final Type PROPERTY_LIST_TYPE = TypeToken
+            .getParameterized(Set.class, NPCData.Property.class).getType();
+
+    private static volatile ProfileResolver defaultResolver;
+
+    private final String uniqueIdRequestUrl;
+    private final String profileRequestUrl;
+    @Getter
+    private final ProfileCache cache;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(REQUEST_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private final Map<String, CompletableFuture<UUID>> uniqueIdRequests = new ConcurrentHashMap<>();
+    private final Map<UUID, CompletableFuture<Profile>> profileRequests = new ConcurrentHashMap<>();
+
+    private ProfileResolver(@NotNull String uniqueIdRequestUrl, @NotNull String profileRequestUrl,
+                            @NotNull ProfileCache cache) {
+        this.uniqueIdRequestUrl = Preconditions.checkNotNull(uniqueIdRequestUrl, "uniqueIdRequestUrl");
+        this.profileRequestUrl = Preconditions.checkNotNull(profileRequestUrl, "profileRequestUrl");
+        this.cache = Preconditions.checkNotNull(cache, "cache");
+    }
+
+    /**
+     * Creates a new resolver using the mojang api.
+     *
+     * @return the created resolver
+     */
+    @NotNull
+    public static ProfileResolver create() {
+        return create(UUID_REQUEST_URL, TEXTURES_REQUEST_URL);
+    }
+
+    /**
+     * Creates a new resolver using the given urls.
+     *
+     * @param uniqueIdRequestUrl The url resolving the unique id of a name, formatted with the name.
+     * @param profileRequestUrl  The url resolving the profile of a unique id, formatted with the unique
+     *                           id without dashes and if the properties should be unsigned.
+     * @return the created resolver
+     */
+    @NotNull
+    public static ProfileResolver create(@NotNull String uniqueIdRequestUrl, @NotNull String profileRequestUrl) {
+        return create(uniqueIdRequestUrl, profileRequestUrl, ProfileCache.create());
+    }
+
+    /**
+     * Creates a new resolver using the given urls and cache.
+     *
+     * @param uniqueIdRequestUrl The url resolving the unique id of a name, formatted with the name.
+     * @param profileRequestUrl  The url resolving the profile of a unique id, formatted with the unique
+     *                           id without dashes and if the properties should be unsigned.
+     * @param cache              The cache of the results.
+     * @return the created resolver
+     */
+    @NotNull
+    public static ProfileResolver create(@NotNull String uniqueIdRequestUrl, @NotNull String profileRequestUrl,
+                                         @NotNull ProfileCache cache) {
+        return new ProfileResolver(uniqueIdRequestUrl, profileRequestUrl, cache);
+    }
+
+    /**
+     * Get the resolver used by {@link NPCData#complete()}.
+     *
+     * @return the default resolver
+     */
+    @NotNull
+    public static ProfileResolver getDefault() {
+        ProfileResolver resolver = defaultResolver;
+        if (resolver == null) {
+            synchronized (ProfileResolver.class) {
+                resolver = defaultResolver;
+                if (resolver == null) {
+                    resolver = create();
+                    defaultResolver = resolver;
+                }
+            }
+        }
+        return resolver;
+    }
+
+    /**
+     * Sets the resolver used by {@link NPCData#complete()}.
+     *
+     * @param resolver The new default resolver.
+     */
+    public static void setDefault(@NotNull ProfileResolver resolver) {
+        defaultResolver = Preconditions.checkNotNull(resolver, "resolver");
+    }
+
+    /**
+     * Resolves the unique id of a name.
+     *
+     * @param name The name to resolve.
+     * @return a future completed with the unique id or null if there is no player with the name
+     */
+    @NotNull
+    public CompletableFuture<UUID> resolveUniqueId(@NotNull String name) {
+        ProfileCache.Entry<UUID> cachedEntry = this.cache.getUniqueId(name);
+        if (cachedEntry != null) {
+            return CompletableFuture.completedFuture(cachedEntry.getValue());
+        }
+
+        SkinStore store = SkinStore.getDefault();
+        UUID storedUniqueId = store == null ? null : store.getUniqueId(name);
+        if (storedUniqueId != null) {
+            this.cache.putUniqueId(name, storedUniqueId);
+            return CompletableFuture.completedFuture(storedUniqueId);
+        }
+
+        return singleFlight(this.uniqueIdRequests, name.toLowerCase(Locale.ROOT), () -> this
+                .request(String.format(this.uniqueIdRequestUrl, name))
+                .thenApply(element -> {
+                    if (element == null || !element.isJsonObject() || !element.getAsJsonObject().has("id")) {
+                        this.cache.putUniqueId(name, null);
+                        return null;
+                    }
+
+                    UUID uniqueId = UUID.fromString(UNIQUE_ID_PATTERN
+                            .matcher(element.getAsJsonObject().get("id").getAsString())
+                            .replaceAll("$1-$2-$3-$4-$5"));
+                    this.cache.putUniqueId(name, uniqueId);
+                    return uniqueId;
+                }));
+    }
+
+    /**
+     * Resolves the name and properties of a unique id.
+     *
+     * @param uniqueId The unique id to resolve.
+     * @return a future completed with the profile or null if there is no player with the unique id
+     */
+    @NotNull
+    public CompletableFuture<Profile> resolveProfile(@NotNull UUID uniqueId) {
+        ProfileCache.Entry<Profile> cachedEntry = this.cache.getProfile(uniqueId);
+        if (cachedEntry != null) {
+            return CompletableFuture.completedFuture(cachedEntry.getValue());
+        }
+
+        SkinStore store = SkinStore.getDefault();
+        Profile storedProfile = store == null ? null : store.getProfile(uniqueId);
+        if (storedProfile != null) {
+            this.cache.putProfile(uniqueId, storedProfile);
+            return CompletableFuture.completedFuture(storedProfile);
+        }
+
+        return singleFlight(this.profileRequests, uniqueId, () -> this
+                .request(String.format(this.profileRequestUrl, uniqueId.toString().replace("-", ""), false))
+                .thenApply(element -> {
+                    JsonObject object = element == null || !element.isJsonObject() ? null : element.getAsJsonObject();
+                    if (object == null || !object.has("name") || !object.has("properties")) {
+                        this.cache.putProfile(uniqueId, null);
+                        return null;
+                    }
+
+                    Profile profile = new Profile(uniqueId, object.get("name").getAsString(),
+                            GSON.fromJson(object.get("properties"), PROPERTY_LIST_TYPE));
+                    this.cache.putProfile(uniqueId, profile);
+                    this.cache.putUniqueId(profile.getName(), uniqueId);
+                    if (store != null) {
+                        store.append(profile);
+                    }
+                    return profile;
+                }));
+    }
+
+    /**
+     * Runs a request unless a request with the same key is already running, in which case the running
+     * request is shared.
+     *
+     * @param requests The running requests.
+     * @param key      The key of the request.
+     * @param request  The request to run.
+     * @param <K>      The type of the key.
+     * @param <V>      The type of the result.
+     * @return a future completed with the result of the request
+     */
+    @NotNull
+    private static <K, V> CompletableFuture<V> singleFlight(@NotNull Map<K, CompletableFuture<V>> requests,
+                                                            @NotNull K key,
+                                                            @NotNull Supplier<CompletableFuture<V>> request) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> runningFuture = requests.putIfAbsent(key, future);
+        if (runningFuture != null) {
+            return runningFuture;
+        }
+
+        CompletableFuture<V> requestFuture;
+        try {
+            requestFuture = request.get();
+        } catch (RuntimeException exception) {
+            requestFuture = CompletableFuture.failedFuture(exception);
+        }
+
+        requestFuture.whenComplete((result, throwable) -> {
+            requests.remove(key, future);
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            } else {
+                future.complete(result);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Makes a request to the given url, accepting only application/json.
+     *
+     * @param url The url to make the request to.
+     * @return a future completed with the parsed json or null if the requested player does not exist
+     */
+    @NotNull
+    private CompletableFuture<JsonElement> request(@NotNull String url) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return this.httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    switch (response.statusCode()) {
+                        case 200:
+                            return JsonParser.parseString(response.body());
+                        case 204:
+                        case 404:
+                            return null;
+                        default:
+                            // e.g. rate limited, must not be cached as a missing player
+                            throw new UncheckedIOException(new IOException(
+                                    "Unexpected response code " + response.statusCode() + " from " + url));
+                    }
+                });
+    }
+
+    /**
+     * The name and properties of a player.
+     */
+    @Getter
+    public static class Profile {
+
+        private final UUID uniqueId;
+        private final String name;
+        @Unmodifiable
+        private final Collection<NPCData.Property> properties;
+
+        /**
+         * Creates a new profile.
+         *
+         * @param uniqueId   The unique id of the player.
+         * @param name       The name of the player.
+         * @param properties The properties of the player.
+         */
+        public Profile(@NotNull UUID uniqueId, @NotNull String name, @Nullable Collection<NPCData.Property> properties) {
+            this.uniqueId = uniqueId;
+            this.name = name;
+            this.properties = properties == null
+                    ? Collections.emptySet()
+                    : Collections.unmodifiableCollection(new ArrayList<>(properties));
+        }
+    }
+
+}
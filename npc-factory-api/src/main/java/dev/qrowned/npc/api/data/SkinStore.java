@@ -0,0 +1,367 @@
+package dev.qrowned.npc.api.data;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent store of resolved profiles, backed by an append-only file which can be shared by
+ * several processes. Records are appended under an exclusive file lock and become visible to readers
+ * once the committed length in the header of the file is updated, so readers never see a partially
+ * written record. Only the header of the file is mapped, so readers notice appended records without
+ * a system call. The records themselves are read through the channel once, when they were appended.
+ * Only one store should be opened per file and process.
+ */
+public class SkinStore implements Closeable {
+
+    /**
+     * The system property overriding the path of the default store.
+     */
+    public static final String PATH_PROPERTY = "npcfactory.skinStore";
+
+    private static final int MAGIC = 0x4E504353;
+    private static final int FORMAT_VERSION = 1;
+    /**
+     * The header: magic, format version and the committed length of the file.
+     */
+    private static final int HEADER_SIZE = 16;
+    private static final int COMMITTED_LENGTH_OFFSET = 8;
+    /**
+     * The minimum size of a property record: the lengths of its name, value and signature.
+     */
+    private static final int MIN_PROPERTY_SIZE = 3 * Integer.BYTES;
+
+    private static volatile SkinStore defaultStore;
+
+    @Getter
+    private final Path path;
+    private final FileChannel channel;
+
+    private final Map<UUID, ProfileResolver.Profile> profiles = new ConcurrentHashMap<>();
+    private final Map<String, UUID> uniqueIds = new ConcurrentHashMap<>();
+
+    private final MappedByteBuffer header;
+    /**
+     * The position up to which the records of the file were read.
+     */
+    private volatile long indexedLength = HEADER_SIZE;
+
+    private SkinStore(@NotNull Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try (FileLock ignored = this.channel.lock()) {
+            if (this.channel.size() < HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                        .putInt(MAGIC)
+                        .putInt(FORMAT_VERSION)
+                        .putLong(HEADER_SIZE);
+                this.writeFully(header.flip(), 0);
+                this.channel.force(false);
+            }
+
+            this.header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (this.header.getInt(0) != MAGIC || this.header.getInt(Integer.BYTES) != FORMAT_VERSION) {
+                throw new IOException("File " + path + " is not a skin store of version " + FORMAT_VERSION);
+            }
+            this.index(this.header.getLong(COMMITTED_LENGTH_OFFSET));
+        } catch (OverlappingFileLockException exception) {
+            this.channel.close();
+            throw new IOException("File " + path + " is already opened as skin store by this process", exception);
+        } catch (IOException | RuntimeException exception) {
+            this.channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Opens a store, creating the file if it does not exist.
+     *
+     * @param path The path of the file of the store.
+     * @return the opened store
+     * @throws IOException if the file could not be opened or is no skin store
+     */
+    @NotNull
+    public static SkinStore open(@NotNull Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return new SkinStore(path);
+    }
+
+    /**
+     * Get the store consulted by {@link ProfileResolver}s before making any request. If no store was
+     * set, the store at the path of the {@link #PATH_PROPERTY} system property is opened.
+     *
+     * @return the default store or null if there is none
+     */
+    @Nullable
+    public static SkinStore getDefault() {
+        SkinStore store = defaultStore;
+        if (store == null && System.getProperty(PATH_PROPERTY) != null) {
+            synchronized (SkinStore.class) {
+                store = defaultStore;
+                if (store == null) {
+                    try {
+                        store = open(Paths.get(System.getProperty(PATH_PROPERTY)));
+                        defaultStore = store;
+                    } catch (IOException exception) {
+                        exception.printStackTrace();
+                    }
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Sets the store consulted by {@link ProfileResolver}s before making any request.
+     *
+     * @param store The new default store or null to consult no store.
+     */
+    public static void setDefault(@Nullable SkinStore store) {
+        defaultStore = store;
+    }
+
+    /**
+     * Get the stored profile of a unique id, including profiles appended by other processes.
+     *
+     * @param uniqueId The unique id of the player.
+     * @return the stored profile or null if there is none
+     */
+    @Nullable
+    public ProfileResolver.Profile getProfile(@NotNull UUID uniqueId) {
+        ProfileResolver.Profile profile = this.profiles.get(uniqueId);
+        if (profile == null && this.refresh()) {
+            profile = this.profiles.get(uniqueId);
+        }
+        return profile;
+    }
+
+    /**
+     * Get the stored unique id of a name, including profiles appended by other processes.
+     *
+     * @param name The name of the player.
+     * @return the stored unique id or null if there is none
+     */
+    @Nullable
+    public UUID getUniqueId(@NotNull String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        UUID uniqueId = this.uniqueIds.get(key);
+        if (uniqueId == null && this.refresh()) {
+            uniqueId = this.uniqueIds.get(key);
+        }
+        return uniqueId;
+    }
+
+    /**
+     * Appends a profile to the file of this store, unless a profile with the same unique id was already
+     * stored by any process.
+     *
+     * @param profile The profile to store.
+     * @return if the profile was appended
+     */
+    public synchronized boolean append(@NotNull ProfileResolver.Profile profile) {
+        try (FileLock ignored = this.channel.lock()) {
+            long committedLength = this.readFully(COMMITTED_LENGTH_OFFSET, Long.BYTES).getLong();
+            this.index(committedLength);
+            if (this.profiles.containsKey(profile.getUniqueId())) {
+                return false;
+            }
+
+            ByteBuffer record = encode(profile);
+            long newCommittedLength = committedLength + record.remaining();
+            this.writeFully(record, committedLength);
+            this.channel.force(false);
+
+            // the record is only visible to readers after it was completely written
+            this.writeFully(ByteBuffer.allocate(Long.BYTES).putLong(0, newCommittedLength), COMMITTED_LENGTH_OFFSET);
+            this.channel.force(false);
+            this.index(newCommittedLength);
+            return true;
+        } catch (IOException | OverlappingFileLockException exception) {
+            // another store of this process holding the lock is treated like a failed write
+            exception.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Get the amount of profiles in this store.
+     *
+     * @return the amount of stored profiles
+     */
+    public int size() {
+        return this.profiles.size();
+    }
+
+    /**
+     * Closes the file of this store, the stored profiles stay readable.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Reads the records appended since the last refresh, if any.
+     *
+     * @return if new records were read
+     */
+    private synchronized boolean refresh() {
+        if (!this.channel.isOpen()) {
+            return false;
+        }
+
+        try {
+            if (this.header.getLong(COMMITTED_LENGTH_OFFSET) <= this.indexedLength) {
+                return false;
+            }
+
+            try (FileLock ignored = this.channel.lock(0, Long.MAX_VALUE, true)) {
+                this.index(this.readFully(COMMITTED_LENGTH_OFFSET, Long.BYTES).getLong());
+            }
+            return true;
+        } catch (IOException | OverlappingFileLockException exception) {
+            exception.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Reads all records up to the committed length which were not read yet. Must be called while
+     * holding a lock of the file.
+     *
+     * @param committedLength The committed length of the file.
+     * @throws IOException if the file could not be read
+     */
+    private synchronized void index(long committedLength) throws IOException {
+        long indexedLength = this.indexedLength;
+        if (committedLength <= indexedLength) {
+            return;
+        }
+
+        ByteBuffer buffer = this.readFully(indexedLength, Math.toIntExact(committedLength - indexedLength));
+        int position = 0;
+        try {
+            while (position < buffer.limit()) {
+                buffer.position(position);
+                int recordLength = buffer.getInt();
+                ProfileResolver.Profile profile = decode(buffer);
+
+                this.profiles.putIfAbsent(profile.getUniqueId(), profile);
+                this.uniqueIds.put(profile.getName().toLowerCase(Locale.ROOT), profile.getUniqueId());
+                position += Integer.BYTES + recordLength;
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException exception) {
+            // skip the corrupted records instead of reading them again on every refresh
+            exception.printStackTrace();
+            position = buffer.limit();
+        }
+        this.indexedLength = indexedLength + position;
+    }
+
+    @NotNull
+    private static ByteBuffer encode(@NotNull ProfileResolver.Profile profile) {
+        List<byte[]> strings = new ArrayList<>();
+        strings.add(profile.getName().getBytes(StandardCharsets.UTF_8));
+        for (NPCData.Property property : profile.getProperties()) {
+            strings.add(property.getName().getBytes(StandardCharsets.UTF_8));
+            strings.add(property.getValue().getBytes(StandardCharsets.UTF_8));
+            strings.add(property.isSigned() ? property.getSignature().getBytes(StandardCharsets.UTF_8) : null);
+        }
+
+        int recordLength = 2 * Long.BYTES + Integer.BYTES;
+        for (byte[] string : strings) {
+            recordLength += Integer.BYTES + (string == null ? 0 : string.length);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + recordLength)
+                .putInt(recordLength)
+                .putLong(profile.getUniqueId().getMostSignificantBits())
+                .putLong(profile.getUniqueId().getLeastSignificantBits())
+                .putInt(profile.getProperties().size());
+        for (byte[] string : strings) {
+            // -1 marks a missing signature
+            buffer.putInt(string == null ? -1 : string.length);
+            if (string != null) {
+                buffer.put(string);
+            }
+        }
+        return buffer.flip();
+    }
+
+    @NotNull
+    private static ProfileResolver.Profile decode(@NotNull ByteBuffer buffer) {
+        UUID uniqueId = new UUID(buffer.getLong(), buffer.getLong());
+        int propertyCount = buffer.getInt();
+        String name = readString(buffer);
+
+        // a corrupted count must not allocate more properties than the record can hold
+        List<NPCData.Property> properties = new ArrayList<>(Math.min(propertyCount, buffer.remaining() / MIN_PROPERTY_SIZE));
+        for (int i = 0; i < propertyCount; i++) {
+            String propertyName = readString(buffer);
+            String value = readString(buffer);
+            properties.add(new NPCData.Property(propertyName, value, readString(buffer)));
+        }
+        return new ProfileResolver.Profile(uniqueId, name, properties);
+    }
+
+    @Nullable
+    private static String readString(@NotNull ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @NotNull
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + this.path);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private void writeFully(@NotNull ByteBuffer buffer, long position) throws IOException {
+        long offset = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer, offset + buffer.position());
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package dev.qrowned.npc.api.event;
+
+import com.comphenix.protocol.wrappers.EnumWrappers;
+import dev.qrowned.npc.api.NPC;
+import dev.qrowned.npc.api.modifier.AbstractModifier;
+import lombok.Getter;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The asynchronous counterpart of {@link PlayerNPCInteractEvent}, called off the main thread when a
+ * handler delivers interactions asynchronously. The events of a player are called in the order of
+ * the interactions, one after another.
+ */
+@Getter
+public class AsyncPlayerNPCInteractEvent extends Event {
+
+    private static final HandlerList HANDLER_LIST = new HandlerList();
+
+    private final Player player;
+    private final NPC npc;
+    private final PlayerNPCInteractEvent.Hand hand;
+    private final PlayerNPCInteractEvent.EntityUseAction action;
+
+    /**
+     * Constructs a new event instance.
+     *
+     * @param player The player who interacted with the npc.
+     * @param npc    The npc with whom the player has interacted.
+     * @param action The action type of the interact.
+     * @param hand   The player hand used for the interact.
+     */
+    public AsyncPlayerNPCInteractEvent(
+            @NotNull Player player,
+            @NotNull NPC npc,
+            @NotNull EnumWrappers.EntityUseAction action,
+            @NotNull EnumWrappers.Hand hand) {
+        this(player, npc, PlayerNPCInteractEvent.EntityUseAction.fromHandle(action),
+                PlayerNPCInteractEvent.Hand.fromHandle(hand));
+    }
+
+    /**
+     * Constructs a new event instance.
+     *
+     * @param player The player who interacted with the npc.
+     * @param npc    The npc with whom the player has interacted.
+     * @param action The action type of the interact.
+     * @param hand   The player hand used for the interact.
+     */
+    public AsyncPlayerNPCInteractEvent(
+            @NotNull Player player,
+            @NotNull NPC npc,
+            @NotNull PlayerNPCInteractEvent.EntityUseAction action,
+            @NotNull PlayerNPCInteractEvent.Hand hand) {
+        // the async constructor of PlayerEvent is not accessible in every server version
+        super(true);
+        this.player = player;
+        this.npc = npc;
+        this.action = action;
+        this.hand = hand;
+    }
+
+    /**
+     * Get the handler list of this event, required by bukkit to register listeners.
+     *
+     * @return the handler list of this event
+     */
+    public static HandlerList getHandlerList() {
+        return HANDLER_LIST;
+    }
+
+    /**
+     * Sends the queued data in the provided {@link AbstractModifier}s to the player involved in this
+     * event.
+     *
+     * @param npcModifiers The {@link AbstractModifier}s whose data should be sent
+     */
+    public void send(AbstractModifier... npcModifiers) {
+        for (AbstractModifier npcModifier : npcModifiers) {
+            npcModifier.send(this.player);
+        }
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLER_LIST;
+    }
+
+}
@@ -0,0 +1,93 @@
+package dev.qrowned.npc.api.event;
+
+import dev.qrowned.npc.api.NPC;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects npc events from any thread and calls them in one go on the main thread, instead of
+ * scheduling a task for every single event. Events nobody listens to are not even created. All show
+ * and hide events of a drain are additionally delivered as one {@link NPCVisibilityChangeEvent}.
+ */
+public class NPCEventDispatcher {
+
+    private final Queue<PlayerNPCEvent> queuedEvents = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Get if any listener is registered to the given handler list.
+     *
+     * @param handlerList The handler list of the event.
+     * @return if calling the event would reach any listener
+     */
+    public static boolean hasListeners(@NotNull HandlerList handlerList) {
+        return handlerList.getRegisteredListeners().length > 0;
+    }
+
+    /**
+     * Queues an event to be called with the next drain.
+     *
+     * @param event The event to call.
+     */
+    public void dispatch(@NotNull PlayerNPCEvent event) {
+        this.queuedEvents.add(event);
+    }
+
+    /**
+     * Queues a {@link PlayerNPCShowEvent} if anyone listens to it.
+     *
+     * @param player The player the npc was shown to.
+     * @param npc    The shown npc.
+     */
+    public void dispatchShow(@NotNull Player player, @NotNull NPC npc) {
+        if (hasListeners(PlayerNPCShowEvent.getHandlerList())
+                || hasListeners(NPCVisibilityChangeEvent.getHandlerList())) {
+            this.queuedEvents.add(new PlayerNPCShowEvent(player, npc));
+        }
+    }
+
+    /**
+     * Queues a {@link PlayerNPCHideEvent} if anyone listens to it.
+     *
+     * @param player The player the npc was hidden from.
+     * @param npc    The hidden npc.
+     * @param reason The reason why the npc was hidden.
+     */
+    public void dispatchHide(@NotNull Player player, @NotNull NPC npc, @NotNull PlayerNPCHideEvent.Reason reason) {
+        if (hasListeners(PlayerNPCHideEvent.getHandlerList())
+                || hasListeners(NPCVisibilityChangeEvent.getHandlerList())) {
+            this.queuedEvents.add(new PlayerNPCHideEvent(player, npc, reason));
+        }
+    }
+
+    /**
+     * Calls all queued events. Has to be called on the main thread.
+     */
+    public void drain() {
+        if (this.queuedEvents.isEmpty()) {
+            return;
+        }
+
+        List<PlayerNPCEvent> visibilityChanges = new ArrayList<>();
+        PlayerNPCEvent event;
+        while ((event = this.queuedEvents.poll()) != null) {
+            if (hasListeners(event.getHandlers())) {
+                Bukkit.getPluginManager().callEvent(event);
+            }
+            if (event instanceof PlayerNPCShowEvent || event instanceof PlayerNPCHideEvent) {
+                visibilityChanges.add(event);
+            }
+        }
+
+        if (!visibilityChanges.isEmpty() && hasListeners(NPCVisibilityChangeEvent.getHandlerList())) {
+            Bukkit.getPluginManager().callEvent(new NPCVisibilityChangeEvent(visibilityChanges));
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package dev.qrowned.npc.api.event;
+
+import lombok.Getter;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Called once per tick with all npcs shown to or hidden from players during the tick, as an
+ * alternative to listening to every single {@link PlayerNPCShowEvent} and {@link PlayerNPCHideEvent}.
+ */
+public class NPCVisibilityChangeEvent extends Event {
+
+    private static final HandlerList HANDLER_LIST = new HandlerList();
+
+    /**
+     * The show and hide events of the tick, in the order they happened.
+     */
+    @Getter
+    @Unmodifiable
+    private final List<PlayerNPCEvent> changes;
+
+    /**
+     * Constructs a new event instance
+     *
+     * @param changes The show and hide events of the tick.
+     */
+    public NPCVisibilityChangeEvent(@NotNull List<PlayerNPCEvent> changes) {
+        this.changes = Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * Get the handler list of this event, required by bukkit to register listeners.
+     *
+     * @return the handler list of this event
+     */
+    public static HandlerList getHandlerList() {
+        return HANDLER_LIST;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLER_LIST;
+    }
+
+}
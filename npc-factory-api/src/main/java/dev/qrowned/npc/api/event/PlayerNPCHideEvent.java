@@ -24,6 +24,15 @@ public class PlayerNPCHideEvent extends PlayerNPCEvent {
         this.reason = reason;
     }
 
+    /**
+     * Get the handler list of this event, required by bukkit to register listeners.
+     *
+     * @return the handler list of this event
+     */
+    public static HandlerList getHandlerList() {
+        return HANDLER_LIST;
+    }
+
     @Override
     public HandlerList getHandlers() {
         return HANDLER_LIST;
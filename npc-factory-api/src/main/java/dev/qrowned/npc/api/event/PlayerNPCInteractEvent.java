@@ -78,6 +78,15 @@ public class PlayerNPCInteractEvent extends PlayerNPCEvent {
         this.hand = hand;
     }
 
+    /**
+     * Get the handler list of this event, required by bukkit to register listeners.
+     *
+     * @return the handler list of this event
+     */
+    public static HandlerList getHandlerList() {
+        return HANDLER_LIST;
+    }
+
     @Override
     public HandlerList getHandlers() {
         return HANDLER_LIST;
@@ -126,7 +135,7 @@ public class PlayerNPCInteractEvent extends PlayerNPCEvent {
          * @throws IllegalArgumentException When no association was found.
          */
         @NotNull
-        private static EntityUseAction fromHandle(@NotNull EnumWrappers.EntityUseAction action) {
+        public static EntityUseAction fromHandle(@NotNull EnumWrappers.EntityUseAction action) {
             for (EntityUseAction value : VALUES) {
                 if (value.handle == action) {
                     return value;
@@ -174,7 +183,7 @@ public class PlayerNPCInteractEvent extends PlayerNPCEvent {
          * @throws IllegalArgumentException When no association was found.
          */
         @NotNull
-        private static Hand fromHandle(@NotNull EnumWrappers.Hand hand) {
+        public static Hand fromHandle(@NotNull EnumWrappers.Hand hand) {
             for (Hand value : VALUES) {
                 if (value.handle == hand) {
                     return value;
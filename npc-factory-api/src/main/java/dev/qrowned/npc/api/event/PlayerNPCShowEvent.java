@@ -18,6 +18,14 @@ public class PlayerNPCShowEvent extends PlayerNPCEvent {
         super(player, npc);
     }
 
+    /**
+     * Get the handler list of this event, required by bukkit to register listeners.
+     *
+     * @return the handler list of this event
+     */
+    public static HandlerList getHandlerList() {
+        return HANDLER_LIST;
+    }
 
     @Override
     public HandlerList getHandlers() {
@@ -1,8 +1,14 @@
 package dev.qrowned.npc.api.handler;
 
 import dev.qrowned.npc.api.NPC;
+import dev.qrowned.npc.api.event.NPCEventDispatcher;
+import dev.qrowned.npc.api.event.PlayerNPCHideEvent;
+import dev.qrowned.npc.api.modifier.PacketBatcher;
+import dev.qrowned.npc.api.utils.TimingWheel;
+import org.bukkit.entity.Player;
 import org.bukkit.event.Listener;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
 import java.util.Collection;
@@ -42,6 +48,30 @@ public interface NPCHandler extends Listener {
      */
     void removeNPC(int entityId);
 
+    /**
+     * Remove multiple npcs from this handler. Every player seeing some of the npcs gets a single
+     * packet destroying all of them.
+     *
+     * @param entityIds the entity ids of the npcs
+     */
+    void removeNPCs(int @NotNull ... entityIds);
+
+    /**
+     * Hide multiple npcs from a player with a single packet destroying all of them. Npcs which are not
+     * shown to the player are skipped.
+     *
+     * @param player the player to hide the npcs from
+     * @param npcs   the npcs to hide
+     * @param reason the reason why the npcs are hidden
+     */
+    void hideNPCs(@NotNull Player player, @NotNull Collection<NPC> npcs, @NotNull PlayerNPCHideEvent.Reason reason);
+
+    /**
+     * Shut this handler down, removing all of its npcs from every player and stopping all of its
+     * tasks and listeners
+     */
+    void shutdown();
+
     /**
      * Get all npcs handled by this handler
      *
@@ -50,4 +80,72 @@ public interface NPCHandler extends Listener {
     @Unmodifiable
     Collection<NPC> getNPCs();
 
+    /**
+     * Get all npcs handled by this handler which are currently shown to a player
+     *
+     * @param player the player
+     * @return an unmodifiable collection of the npcs shown to the player
+     */
+    @Unmodifiable
+    Collection<NPC> getVisibleNPCs(@NotNull Player player);
+
+    /**
+     * Called after a npc handled by this handler was shown to a player
+     *
+     * @param npc    the shown npc
+     * @param player the player the npc was shown to
+     */
+    default void handleShow(@NotNull NPC npc, @NotNull Player player) {
+    }
+
+    /**
+     * Called after the spawn packets of a npc handled by this handler were sent to a player, which
+     * happens {@link NPC#SPAWN_DELAY_TICKS} after the npc was shown
+     *
+     * @param npc    the spawned npc
+     * @param player the player the npc was spawned for
+     */
+    default void handleSpawn(@NotNull NPC npc, @NotNull Player player) {
+    }
+
+    /**
+     * Called after a npc handled by this handler was hidden from a player
+     *
+     * @param npc    the hidden npc
+     * @param player the player the npc was hidden from
+     */
+    default void handleHide(@NotNull NPC npc, @NotNull Player player) {
+    }
+
+    /**
+     * Get the timing wheel running the delayed show and hide tasks of the npcs handled by this handler
+     *
+     * @return the timing wheel or null if the tasks should be run by the scheduler of bukkit
+     */
+    @Nullable
+    default TimingWheel getTimingWheel() {
+        return null;
+    }
+
+    /**
+     * Get the batcher all packets changing the visibility of the npcs handled by this handler are sent
+     * through, keeping them in order for each player. The handler has to flush the batcher once per tick
+     *
+     * @return the packet batcher or null if the packets should be sent by the npcs directly
+     */
+    @Nullable
+    default PacketBatcher getPacketBatcher() {
+        return null;
+    }
+
+    /**
+     * Get the dispatcher calling the events of the npcs handled by this handler
+     *
+     * @return the event dispatcher or null if the events should be called by the npcs directly
+     */
+    @Nullable
+    default NPCEventDispatcher getEventDispatcher() {
+        return null;
+    }
+
 }
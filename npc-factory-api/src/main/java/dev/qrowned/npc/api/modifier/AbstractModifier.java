@@ -21,6 +21,12 @@ public abstract class AbstractModifier {
     public static final int MINECRAFT_VERSION = ProtocolLibrary.getProtocolManager()
             .getMinecraftVersion().getMinor();
 
+    /**
+     * If modifiers created on the current thread queue viewer specific changes by default, which is
+     * the case while a {@link dev.qrowned.npc.api.utils.SpawnModifier} runs.
+     */
+    private static final ThreadLocal<Boolean> VIEWER_SPECIFIC = ThreadLocal.withInitial(() -> false);
+
     /**
      * All queued packet containers.
      */
@@ -29,6 +35,11 @@ public abstract class AbstractModifier {
      * The target npc.
      */
     protected NPC npc;
+    /**
+     * If the queued changes become part of the {@link NPCState} of the npc, which is sent to every
+     * player the npc is spawned for. Changes meant only for the players they are sent to must not.
+     */
+    protected boolean recordState = !VIEWER_SPECIFIC.get();
 
     /**
      * Creates a new npc modifier.
@@ -39,6 +50,22 @@ public abstract class AbstractModifier {
         this.npc = npc;
     }
 
+    /**
+     * Runs a task in which all created modifiers queue viewer specific changes by default, which do
+     * not become part of the {@link NPCState} of the npc.
+     *
+     * @param task The task to run.
+     */
+    public static void runViewerSpecific(@NotNull Runnable task) {
+        boolean previous = VIEWER_SPECIFIC.get();
+        VIEWER_SPECIFIC.set(true);
+        try {
+            task.run();
+        } finally {
+            VIEWER_SPECIFIC.set(previous);
+        }
+    }
+
     /**
      * Creates and adds a new packet container to the packet queue.
      *
@@ -67,6 +94,16 @@ public abstract class AbstractModifier {
         return packetContainer;
     }
 
+    /**
+     * Adds an already built packet container to the packet queue. The container may be shared with
+     * other modifiers and receivers, it must not be modified afterwards.
+     *
+     * @param packetContainer The packet container to add.
+     */
+    protected void addContainer(@NotNull PacketContainer packetContainer) {
+        this.packetContainers.add(packetContainer);
+    }
+
     /**
      * Get the last container in the packet queue or null if there is no container.
      *
@@ -120,6 +157,7 @@ public abstract class AbstractModifier {
      * @param createClone If a copy of each packet container should be done before sending.
      */
     public void send(@NotNull Iterable<? extends Player> players, boolean createClone) {
+        this.prepareSend();
         players.forEach(player -> {
             try {
                 for (PacketContainer packetContainer : this.packetContainers) {
@@ -152,4 +190,39 @@ public abstract class AbstractModifier {
         this.send(Arrays.asList(targetPlayers), createClone);
     }
 
+    /**
+     * Queues the queued modifications for all given {@code players} in a batcher instead of sending
+     * them directly. They are written once the batcher is flushed.
+     *
+     * @param batcher The batcher collecting the packets.
+     * @param players The receivers of the packet.
+     */
+    public void send(@NotNull PacketBatcher batcher, @NotNull Iterable<? extends Player> players) {
+        this.prepareSend();
+        players.forEach(player -> {
+            for (PacketContainer packetContainer : this.packetContainers) {
+                batcher.queue(player, packetContainer);
+            }
+        });
+        this.packetContainers.clear();
+    }
+
+    /**
+     * Queues the queued modifications for certain players in a batcher instead of sending them
+     * directly. They are written once the batcher is flushed.
+     *
+     * @param batcher       The batcher collecting the packets.
+     * @param targetPlayers the players which should see the modification
+     */
+    public void send(@NotNull PacketBatcher batcher, @NotNull Player... targetPlayers) {
+        this.send(batcher, Arrays.asList(targetPlayers));
+    }
+
+    /**
+     * Called before the queued packets are sent, allowing modifiers to add packets which are built of
+     * all queued modifications.
+     */
+    protected void prepareSend() {
+    }
+
 }
@@ -8,7 +8,11 @@ import dev.qrowned.npc.api.NPC;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A modifier for modifying the equipment of a player.
@@ -68,6 +72,19 @@ public class EquipmentModifier extends AbstractModifier {
         return new EquipmentModifier(npc);
     }
 
+    /**
+     * Marks the changes queued by this modifier as specific to the players they are sent to. They do
+     * not become part of the {@link NPCState} of the npc and are not sent to players the npc is
+     * spawned for later on.
+     *
+     * @return The same instance of this class, for chaining.
+     */
+    @NotNull
+    public EquipmentModifier viewerSpecific() {
+        super.recordState = false;
+        return this;
+    }
+
     /**
      * Queues the change of an item slot using the protocol lib item slot enum wrapper directly. If
      * you don't want to use protocol lib as a dependency, use {@link #queue(int, ItemStack)} with the
@@ -81,21 +98,10 @@ public class EquipmentModifier extends AbstractModifier {
     public EquipmentModifier queue(
             @NotNull EnumWrappers.ItemSlot itemSlot,
             @NotNull ItemStack equipment) {
-        PacketContainer packetContainer = super.newContainer(PacketType.Play.Server.ENTITY_EQUIPMENT);
-
-        if (MINECRAFT_VERSION < 16) {
-            if (MINECRAFT_VERSION < 9) {
-                packetContainer.getIntegers().write(1, itemSlot.ordinal());
-            } else {
-                packetContainer.getItemSlots().write(0, itemSlot);
-            }
-            packetContainer.getItemModifier().write(0, equipment);
-        } else {
-            packetContainer.getSlotStackPairLists()
-                    .write(0, Collections.singletonList(new Pair<>(itemSlot, equipment)));
+        if (super.recordState) {
+            super.npc.getState().updateEquipment(itemSlot, equipment);
         }
-
-        return this;
+        return this.queueSlots(Collections.singletonMap(itemSlot, equipment));
     }
 
     /**
@@ -107,12 +113,103 @@ public class EquipmentModifier extends AbstractModifier {
      */
     @NotNull
     public EquipmentModifier queue(int itemSlot, @NotNull ItemStack equipment) {
-        for (EnumWrappers.ItemSlot slot : ITEM_SLOTS) {
-            if (slot.ordinal() == itemSlot) {
-                return queue(slot, equipment);
+        if (itemSlot < 0 || itemSlot >= ITEM_SLOTS.length) {
+            throw new IllegalArgumentException("Provided itemSlot is invalid");
+        }
+        return this.queue(ITEM_SLOTS[itemSlot], equipment);
+    }
+
+    /**
+     * Queues the change of multiple item slots at once. Since 1.16 all slots are changed by a single
+     * packet, before one packet per slot is needed.
+     *
+     * @param equipment The items which should be placed at the slots.
+     * @return The same instance of this class, for chaining.
+     */
+    @NotNull
+    public EquipmentModifier queue(@NotNull Map<EnumWrappers.ItemSlot, ItemStack> equipment) {
+        if (super.recordState) {
+            equipment.forEach(super.npc.getState()::updateEquipment);
+        }
+        return this.queueSlots(equipment);
+    }
+
+    /**
+     * Queues the change of the item slots whose item differs from the equipment of the npc, skipping
+     * all slots which are unchanged. Viewer specific changes are not compared and queue every slot.
+     *
+     * @param equipment The items which should be placed at the slots.
+     * @return The same instance of this class, for chaining.
+     * @see NPCState#getEquipment()
+     */
+    @NotNull
+    public EquipmentModifier queueChanges(@NotNull Map<EnumWrappers.ItemSlot, ItemStack> equipment) {
+        if (!super.recordState) {
+            return this.queueSlots(equipment);
+        }
+
+        Map<EnumWrappers.ItemSlot, ItemStack> changedEquipment = new EnumMap<>(EnumWrappers.ItemSlot.class);
+        equipment.forEach((itemSlot, item) -> {
+            if (super.npc.getState().updateEquipment(itemSlot, item)) {
+                changedEquipment.put(itemSlot, item);
             }
+        });
+        return this.queueSlots(changedEquipment);
+    }
+
+    /**
+     * Queues the whole current equipment of the npc, e.g. to send it to a player the npc was just
+     * spawned for.
+     *
+     * @return The same instance of this class, for chaining.
+     * @see NPCState#getEquipment()
+     */
+    @NotNull
+    public EquipmentModifier queueSnapshot() {
+        return this.queueSlots(super.npc.getState().getEquipment());
+    }
+
+    private EquipmentModifier queueSlots(@NotNull Map<EnumWrappers.ItemSlot, ItemStack> equipment) {
+        createEquipment(super.npc, equipment).forEach(super::addContainer);
+        return this;
+    }
+
+    /**
+     * Creates the packets changing the equipment of a npc, a single packet since 1.16 and one packet
+     * per slot before.
+     *
+     * @param npc       The npc to change the equipment of.
+     * @param equipment The items which should be placed at the slots.
+     * @return The created packet containers.
+     */
+    @NotNull
+    static List<PacketContainer> createEquipment(@NotNull NPC npc, @NotNull Map<EnumWrappers.ItemSlot, ItemStack> equipment) {
+        if (equipment.isEmpty()) {
+            return Collections.emptyList();
         }
 
-        throw new IllegalArgumentException("Provided itemSlot is invalid");
+        List<PacketContainer> packetContainers = new ArrayList<>();
+        if (MINECRAFT_VERSION < 16) {
+            equipment.forEach((itemSlot, item) -> {
+                PacketContainer packetContainer = new PacketContainer(PacketType.Play.Server.ENTITY_EQUIPMENT);
+                packetContainer.getIntegers().write(0, npc.getEntityId());
+                if (MINECRAFT_VERSION < 9) {
+                    packetContainer.getIntegers().write(1, itemSlot.ordinal());
+                } else {
+                    packetContainer.getItemSlots().write(0, itemSlot);
+                }
+                packetContainer.getItemModifier().write(0, item);
+                packetContainers.add(packetContainer);
+            });
+        } else {
+            List<Pair<EnumWrappers.ItemSlot, ItemStack>> slotStackPairs = new ArrayList<>(equipment.size());
+            equipment.forEach((itemSlot, item) -> slotStackPairs.add(new Pair<>(itemSlot, item)));
+
+            PacketContainer packetContainer = new PacketContainer(PacketType.Play.Server.ENTITY_EQUIPMENT);
+            packetContainer.getIntegers().write(0, npc.getEntityId());
+            packetContainer.getSlotStackPairLists().write(0, slotStackPairs);
+            packetContainers.add(packetContainer);
+        }
+        return packetContainers;
     }
 }
@@ -11,6 +11,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -19,6 +21,11 @@ import java.util.function.Supplier;
  */
 public class MetadataModifier extends AbstractModifier {
 
+    /**
+     * The serializers of the output types, looked up once per type.
+     */
+    private static final Map<Class<?>, WrappedDataWatcher.Serializer> SERIALIZERS = new ConcurrentHashMap<>();
+
     /**
      * The queued metadata.
      */
@@ -38,6 +45,19 @@ public class MetadataModifier extends AbstractModifier {
         return new MetadataModifier(npc);
     }
 
+    /**
+     * Marks the changes queued by this modifier as specific to the players they are sent to. They do
+     * not become part of the {@link NPCState} of the npc and are not sent to players the npc is
+     * spawned for later on.
+     *
+     * @return The same instance of this class, for chaining.
+     */
+    @NotNull
+    public MetadataModifier viewerSpecific() {
+        super.recordState = false;
+        return this;
+    }
+
     /**
      * Queues the change of a specific metadata.
      *
@@ -49,19 +69,19 @@ public class MetadataModifier extends AbstractModifier {
      */
     @NotNull
     public <I, O> MetadataModifier queue(@NotNull EntityMetadata<I, O> metadata, @NotNull I value) {
-        if (!metadata.getAvailabilitySupplier().get()) {
+        if (!metadata.isAvailable()) {
             return this;
         }
 
         for (EntityMetadata<I, Object> relatedMetadata : metadata.getRelatedMetadata()) {
-            if (!relatedMetadata.getAvailabilitySupplier().get()) {
+            if (!relatedMetadata.isAvailable()) {
                 continue;
             }
             this.queue(relatedMetadata.getIndex(), relatedMetadata.getMapper().apply(value),
-                    relatedMetadata.getOutputType());
+                    relatedMetadata.getSerializer());
         }
         return this
-                .queue(metadata.getIndex(), metadata.getMapper().apply(value), metadata.getOutputType());
+                .queue(metadata.getIndex(), metadata.getMapper().apply(value), metadata.getSerializer());
     }
 
     /**
@@ -75,8 +95,7 @@ public class MetadataModifier extends AbstractModifier {
      */
     @NotNull
     public <T> MetadataModifier queue(int index, @NotNull T value, @NotNull Class<T> clazz) {
-        return this
-                .queue(index, value, MINECRAFT_VERSION < 9 ? null : WrappedDataWatcher.Registry.get(clazz));
+        return this.queue(index, value, getSerializer(clazz));
     }
 
     /**
@@ -93,24 +112,117 @@ public class MetadataModifier extends AbstractModifier {
             int index,
             @NotNull T value,
             @Nullable WrappedDataWatcher.Serializer serializer) {
-        this.metadata.add(serializer == null ? new WrappedWatchableObject(
+        WrappedWatchableObject watchableObject = serializer == null ? new WrappedWatchableObject(
                 index,
                 value
         ) : new WrappedWatchableObject(
                 new WrappedDataWatcher.WrappedDataWatcherObject(index, serializer),
                 value
-        ));
+        );
+        this.metadata.add(watchableObject);
+        if (super.recordState) {
+            super.npc.getState().updateMetadata(watchableObject);
+        }
         return this;
     }
 
     /**
-     * {@inheritDoc}
+     * Get the serializer of an output type, which is only looked up once per type.
+     *
+     * @param clazz The class of the output type.
+     * @return the serializer or null if the server version does not use serializers
+     */
+    @Nullable
+    static WrappedDataWatcher.Serializer getSerializer(@NotNull Class<?> clazz) {
+        return MINECRAFT_VERSION < 9 ? null : SERIALIZERS.computeIfAbsent(clazz, WrappedDataWatcher.Registry::get);
+    }
+
+    /**
+     * Sends the queued metadata to all given {@code players}, skipping the values a player already
+     * knows.
+     *
+     * @param players     The receivers of the packet.
+     * @param createClone If a copy of each packet container should be done before sending.
      */
     @Override
     public void send(@NotNull Iterable<? extends Player> players, boolean createClone) {
-        PacketContainer packetContainer = super.newContainer(PacketType.Play.Server.ENTITY_METADATA);
-        packetContainer.getWatchableCollectionModifier().write(0, this.metadata);
-        super.send(players, createClone);
+        this.forEachReceiverGroup(players, (receivers, packetContainer) -> {
+            super.addContainer(packetContainer);
+            super.send(receivers, createClone);
+        });
+    }
+
+    /**
+     * Queues the queued metadata for all given {@code players} in a batcher, skipping the values a
+     * player already knows.
+     *
+     * @param batcher The batcher collecting the packets.
+     * @param players The receivers of the packet.
+     */
+    @Override
+    public void send(@NotNull PacketBatcher batcher, @NotNull Iterable<? extends Player> players) {
+        this.forEachReceiverGroup(players, (receivers, packetContainer) -> {
+            super.addContainer(packetContainer);
+            super.send(batcher, receivers);
+        });
+    }
+
+    /**
+     * Groups the receivers by the queued values they do not know yet and passes every group together
+     * with a packet holding these values to the sender. Receivers knowing every value get nothing.
+     *
+     * @param players The receivers of the queued metadata.
+     * @param sender  The sender of the packet to a group of receivers.
+     */
+    private void forEachReceiverGroup(@NotNull Iterable<? extends Player> players,
+                                      @NotNull BiConsumer<List<Player>, PacketContainer> sender) {
+        List<WrappedWatchableObject> metadata = new ArrayList<>(this.metadata);
+        this.metadata.clear();
+        if (metadata.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<Player>> receiverGroups = new HashMap<>();
+        for (Player player : players) {
+            long unknownValues = 0;
+            for (int i = 0; i < metadata.size(); i++) {
+                WrappedWatchableObject watchableObject = metadata.get(i);
+                if (super.npc.updateKnownMetadata(player, watchableObject.getIndex(), watchableObject.getRawValue())) {
+                    // values beyond the width of the mask share the last bit
+                    unknownValues |= 1L << Math.min(i, Long.SIZE - 1);
+                }
+            }
+
+            if (unknownValues != 0) {
+                receiverGroups.computeIfAbsent(unknownValues, mask -> new ArrayList<>()).add(player);
+            }
+        }
+
+        receiverGroups.forEach((unknownValues, receivers) -> {
+            List<WrappedWatchableObject> changedMetadata = new ArrayList<>();
+            for (int i = 0; i < metadata.size(); i++) {
+                if ((unknownValues & (1L << Math.min(i, Long.SIZE - 1))) != 0) {
+                    changedMetadata.add(metadata.get(i));
+                }
+            }
+
+            sender.accept(receivers, createMetadata(super.npc, changedMetadata));
+        });
+    }
+
+    /**
+     * Creates the packet changing metadata values of a npc.
+     *
+     * @param npc      The npc to change the metadata of.
+     * @param metadata The metadata values.
+     * @return The created packet container.
+     */
+    @NotNull
+    static PacketContainer createMetadata(@NotNull NPC npc, @NotNull List<WrappedWatchableObject> metadata) {
+        PacketContainer packetContainer = new PacketContainer(PacketType.Play.Server.ENTITY_METADATA);
+        packetContainer.getIntegers().write(0, npc.getEntityId());
+        packetContainer.getWatchableCollectionModifier().write(0, metadata);
+        return packetContainer;
     }
 
     /**
@@ -183,6 +295,19 @@ public class MetadataModifier extends AbstractModifier {
          * applied.
          */
         private final Collection<EntityMetadata<I, Object>> relatedMetadata;
+        /**
+         * The index in the data watcher object for the minecraft version of the current server.
+         */
+        private final int index;
+        /**
+         * If the entity metadata is available for the minecraft version of the current server.
+         */
+        private final boolean available;
+        /**
+         * The serializer of the output type, null if the metadata is not available or the server
+         * version does not use serializers.
+         */
+        private final WrappedDataWatcher.Serializer serializer;
 
         /**
          * Creates a new metadata instance.
@@ -208,6 +333,12 @@ public class MetadataModifier extends AbstractModifier {
             this.mapper = mapper;
             this.availabilitySupplier = availabilitySupplier;
             this.relatedMetadata = Arrays.asList(relatedMetadata);
+
+            // the server version does not change at runtime, so everything depending on it is resolved once
+            this.index = baseIndex + Math.toIntExact(
+                    shiftVersions.stream().filter(minor -> MINECRAFT_VERSION >= minor).count());
+            this.available = availabilitySupplier.get();
+            this.serializer = this.available ? MetadataModifier.getSerializer(outputType) : null;
         }
 
         /**
@@ -235,9 +366,28 @@ public class MetadataModifier extends AbstractModifier {
          * @return the index in the data watcher object to modify.
          */
         public int getIndex() {
-            return this.baseIndex + Math.toIntExact(
-                    this.shiftVersions.stream().filter(minor -> MINECRAFT_VERSION >= minor)
-                            .count());
+            return this.index;
+        }
+
+        /**
+         * Get if the entity metadata is available for the minecraft version of the current server
+         * instance.
+         *
+         * @return if the entity metadata is available.
+         */
+        public boolean isAvailable() {
+            return this.available;
+        }
+
+        /**
+         * Get the serializer of the output type for the minecraft version of the current server
+         * instance.
+         *
+         * @return the serializer or null if the server version does not use serializers.
+         */
+        @Nullable
+        public WrappedDataWatcher.Serializer getSerializer() {
+            return this.serializer;
         }
 
         /**
@@ -0,0 +1,183 @@
+package dev.qrowned.npc.api.modifier;
+
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.wrappers.EnumWrappers;
+import com.comphenix.protocol.wrappers.WrappedWatchableObject;
+import dev.qrowned.npc.api.NPC;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The current metadata, equipment and rotation of a npc, as last queued by its modifiers. The state
+ * is sent to every player the npc is spawned for, as one group of packets right after the spawn
+ * packet. The packets are built once per change of the state and shared between all spawns.
+ */
+public class NPCState {
+
+    private static final EnumWrappers.ItemSlot[] ITEM_SLOTS = EnumWrappers.ItemSlot.values();
+
+    private final NPC npc;
+    private final AtomicLong version = new AtomicLong();
+
+    private final Map<Integer, WrappedWatchableObject> metadata = new ConcurrentSkipListMap<>();
+    private final AtomicReferenceArray<ItemStack> equipment = new AtomicReferenceArray<>(ITEM_SLOTS.length);
+    private volatile int rotation;
+
+    private volatile SpawnPackets spawnPackets;
+
+    /**
+     * Creates a new state for a npc.
+     *
+     * @param npc The npc the state is for.
+     */
+    public NPCState(@NotNull NPC npc) {
+        this.npc = npc;
+    }
+
+    /**
+     * Updates a metadata value of the npc.
+     *
+     * @param watchableObject The metadata value.
+     */
+    public void updateMetadata(@NotNull WrappedWatchableObject watchableObject) {
+        this.metadata.put(watchableObject.getIndex(), watchableObject);
+        this.version.incrementAndGet();
+    }
+
+    /**
+     * Get the current metadata values of the npc, ordered by their index.
+     *
+     * @return the current metadata values
+     */
+    @NotNull
+    @Unmodifiable
+    public Collection<WrappedWatchableObject> getMetadata() {
+        return Collections.unmodifiableCollection(this.metadata.values());
+    }
+
+    /**
+     * Updates the item in an equipment slot of the npc.
+     *
+     * @param itemSlot The equipment slot.
+     * @param item     The new item of the slot.
+     * @return if the item differs from the previous item in the slot
+     */
+    public boolean updateEquipment(@NotNull EnumWrappers.ItemSlot itemSlot, @NotNull ItemStack item) {
+        boolean changed = !item.equals(this.equipment.getAndSet(itemSlot.ordinal(), item.clone()));
+        if (changed) {
+            this.version.incrementAndGet();
+        }
+        return changed;
+    }
+
+    /**
+     * Get the item in an equipment slot of the npc.
+     *
+     * @param itemSlot The equipment slot.
+     * @return the item in the slot or null if the slot was never set
+     */
+    @Nullable
+    public ItemStack getEquipment(@NotNull EnumWrappers.ItemSlot itemSlot) {
+        ItemStack item = this.equipment.get(itemSlot.ordinal());
+        return item == null ? null : item.clone();
+    }
+
+    /**
+     * Get the items of all set equipment slots. The items are shared and must not be modified.
+     *
+     * @return the items of all set equipment slots
+     */
+    @NotNull
+    @Unmodifiable
+    public Map<EnumWrappers.ItemSlot, ItemStack> getEquipment() {
+        Map<EnumWrappers.ItemSlot, ItemStack> equipment = new EnumMap<>(EnumWrappers.ItemSlot.class);
+        for (EnumWrappers.ItemSlot itemSlot : ITEM_SLOTS) {
+            ItemStack item = this.equipment.get(itemSlot.ordinal());
+            if (item != null) {
+                equipment.put(itemSlot, item);
+            }
+        }
+        return Collections.unmodifiableMap(equipment);
+    }
+
+    /**
+     * Updates the rotation of the npc.
+     *
+     * @param yawAngle   The yaw angle of the rotation.
+     * @param pitchAngle The pitch angle of the rotation.
+     */
+    public void updateRotation(byte yawAngle, byte pitchAngle) {
+        // the flag bit tells a set rotation apart from a rotation of zero
+        this.rotation = 0x10000 | (yawAngle & 0xFF) << 8 | (pitchAngle & 0xFF);
+        this.version.incrementAndGet();
+    }
+
+    /**
+     * Get the version of the state, which changes whenever the state changes.
+     *
+     * @return the version of the state
+     */
+    public long getVersion() {
+        return this.version.get();
+    }
+
+    /**
+     * Get the packets applying this state to a freshly spawned npc, in the order they have to be sent.
+     * The packets are cached until the state changes and must not be modified.
+     *
+     * @return the packets applying this state
+     */
+    @NotNull
+    @Unmodifiable
+    public List<PacketContainer> getSpawnPackets() {
+        long version = this.version.get();
+        SpawnPackets spawnPackets = this.spawnPackets;
+        if (spawnPackets == null || spawnPackets.version != version) {
+            spawnPackets = new SpawnPackets(version, this.createSpawnPackets());
+            this.spawnPackets = spawnPackets;
+        }
+        return spawnPackets.packetContainers;
+    }
+
+    @NotNull
+    private List<PacketContainer> createSpawnPackets() {
+        List<PacketContainer> packetContainers = new ArrayList<>();
+        if (!this.metadata.isEmpty()) {
+            packetContainers.add(MetadataModifier.createMetadata(this.npc, new ArrayList<>(this.metadata.values())));
+        }
+
+        Map<EnumWrappers.ItemSlot, ItemStack> equipment = this.getEquipment();
+        if (!equipment.isEmpty()) {
+            packetContainers.addAll(EquipmentModifier.createEquipment(this.npc, equipment));
+        }
+
+        int rotation = this.rotation;
+        if (rotation != 0) {
+            packetContainers.addAll(RotationModifier.createRotation(this.npc,
+                    RotationModifier.yawAngle(rotation), RotationModifier.pitchAngle(rotation)));
+        }
+        return Collections.unmodifiableList(packetContainers);
+    }
+
+    /**
+     * The packets applying the state, together with the version of the state they were built of.
+     */
+    private static final class SpawnPackets {
+
+        private final long version;
+        private final List<PacketContainer> packetContainers;
+
+        private SpawnPackets(long version, @NotNull List<PacketContainer> packetContainers) {
+            this.version = version;
+            this.packetContainers = packetContainers;
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package dev.qrowned.npc.api.modifier;
+
+import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.events.PacketContainer;
+import dev.qrowned.npc.api.utils.PlayerChannels;
+import io.netty.channel.Channel;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the packets sent to players and writes them once flushed, with a single flush of the
+ * connection of each player. The packets pass through the whole connection pipeline, so that the
+ * packet listeners of ProtocolLib, which are called by its encoder, and version translations see
+ * them like any other packet. Connections which cannot be resolved get the packets through ProtocolLib
+ * instead. The packets of a player are written by one thread at a time in the order they were queued,
+ * which keeps all packets routed through the same batcher in order, no matter which thread queued or
+ * flushed them.
+ *
+ * @see AbstractModifier#send(PacketBatcher, Iterable)
+ */
+public class PacketBatcher {
+
+    private final Map<Player, List<PacketContainer>> queuedPackets = new ConcurrentHashMap<>();
+
+    /**
+     * Queues a packet for a player.
+     *
+     * @param player          The receiver of the packet.
+     * @param packetContainer The packet to send.
+     */
+    public void queue(@NotNull Player player, @NotNull PacketContainer packetContainer) {
+        List<PacketContainer> packets = this.queuedPackets.computeIfAbsent(player, key -> new ArrayList<>());
+        synchronized (packets) {
+            packets.add(packetContainer);
+        }
+    }
+
+    /**
+     * Writes all queued packets, flushing the connection of every player once.
+     */
+    public void flush() {
+        this.queuedPackets.forEach(this::flush);
+    }
+
+    /**
+     * Writes all packets queued for a player, flushing the connection of the player once.
+     *
+     * @param player The receiver of the packets.
+     */
+    public void flush(@NotNull Player player) {
+        List<PacketContainer> packets = this.queuedPackets.get(player);
+        if (packets != null) {
+            this.flush(player, packets);
+        }
+    }
+
+    private void flush(@NotNull Player player, @NotNull List<PacketContainer> packets) {
+        // sending while holding the lock keeps packets queued later from overtaking these
+        synchronized (packets) {
+            if (!player.isOnline()) {
+                packets.clear();
+                this.queuedPackets.remove(player, packets);
+                return;
+            }
+
+            if (packets.isEmpty()) {
+                return;
+            }
+
+            Channel channel = PlayerChannels.getChannel(player);
+            try {
+                if (channel == null) {
+                    for (PacketContainer packetContainer : packets) {
+                        ProtocolLibrary.getProtocolManager().sendServerPacket(player, packetContainer);
+                    }
+                    return;
+                }
+
+                for (PacketContainer packetContainer : packets) {
+                    channel.write(packetContainer.getHandle());
+                }
+                channel.flush();
+            } catch (InvocationTargetException exception) {
+                exception.printStackTrace();
+            } finally {
+                packets.clear();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package dev.qrowned.npc.api.modifier;
+
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.wrappers.EnumWrappers;
+import dev.qrowned.npc.api.NPC;
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Caches the packets of a npc which are the same for every player, like the spawn, destroy and
+ * player list packets. A cached packet is shared between all receivers, the same way the server
+ * shares packets it broadcasts to multiple players. The spawn packet is rebuilt once the location
+ * or unique id of the npc changed, the other packets only depend on the game profile of the npc, which
+ * never changes after the npc was created.
+ */
+public class PacketTemplates {
+
+    private static final EnumWrappers.PlayerInfoAction[] PLAYER_INFO_ACTIONS = EnumWrappers.PlayerInfoAction.values();
+
+    private final NPC npc;
+    private final AtomicReferenceArray<PacketContainer> playerListChanges = new AtomicReferenceArray<>(PLAYER_INFO_ACTIONS.length);
+
+    private volatile SpawnTemplate spawn;
+    private volatile PacketContainer destroy;
+
+    /**
+     * Creates new templates for a npc.
+     *
+     * @param npc The npc the templates are for.
+     */
+    public PacketTemplates(@NotNull NPC npc) {
+        this.npc = npc;
+    }
+
+    /**
+     * Get the packet changing the player list entry of the npc.
+     *
+     * @param action The action of the player list change.
+     * @return the cached packet container
+     */
+    @NotNull
+    public PacketContainer getPlayerListChange(@NotNull EnumWrappers.PlayerInfoAction action) {
+        PacketContainer packetContainer = this.playerListChanges.get(action.ordinal());
+        if (packetContainer == null) {
+            packetContainer = VisibilityModifier.createPlayerListChange(this.npc, action);
+            this.playerListChanges.set(action.ordinal(), packetContainer);
+        }
+        return packetContainer;
+    }
+
+    /**
+     * Get the packet spawning the npc at its current location.
+     *
+     * @return the cached packet container
+     */
+    @NotNull
+    public PacketContainer getSpawn() {
+        SpawnTemplate spawn = this.spawn;
+        if (spawn == null || !spawn.matches(this.npc)) {
+            spawn = new SpawnTemplate(this.npc);
+            this.spawn = spawn;
+        }
+        return spawn.packetContainer;
+    }
+
+    /**
+     * Get the packet destroying the npc.
+     *
+     * @return the cached packet container
+     */
+    @NotNull
+    public PacketContainer getDestroy() {
+        PacketContainer packetContainer = this.destroy;
+        if (packetContainer == null) {
+            packetContainer = VisibilityModifier.createDestroy(this.npc);
+            this.destroy = packetContainer;
+        }
+        return packetContainer;
+    }
+
+    /**
+     * A spawn packet together with the state of the npc it was built of.
+     */
+    private static final class SpawnTemplate {
+
+        private final PacketContainer packetContainer;
+        private final UUID uniqueId;
+        private final double x;
+        private final double y;
+        private final double z;
+        private final float yaw;
+        private final float pitch;
+
+        private SpawnTemplate(@NotNull NPC npc) {
+            Location location = npc.getLocation();
+            this.packetContainer = VisibilityModifier.createSpawn(npc);
+            this.uniqueId = npc.getNpcData().getUniqueId();
+            this.x = location.getX();
+            this.y = location.getY();
+            this.z = location.getZ();
+            this.yaw = location.getYaw();
+            this.pitch = location.getPitch();
+        }
+
+        private boolean matches(@NotNull NPC npc) {
+            Location location = npc.getLocation();
+            return this.uniqueId.equals(npc.getNpcData().getUniqueId())
+                    && this.x == location.getX()
+                    && this.y == location.getY()
+                    && this.z == location.getZ()
+                    && this.yaw == location.getYaw()
+                    && this.pitch == location.getPitch();
+        }
+    }
+
+}
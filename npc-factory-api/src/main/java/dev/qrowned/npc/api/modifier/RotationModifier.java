@@ -3,9 +3,13 @@ package dev.qrowned.npc.api.modifier;
 import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.events.PacketContainer;
 import dev.qrowned.npc.api.NPC;
+import dev.qrowned.npc.api.utils.AngleMath;
 import org.bukkit.Location;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * A modifier for modifying the rotation of a player.
  */
@@ -25,6 +29,19 @@ public class RotationModifier extends AbstractModifier {
         return new RotationModifier(npc);
     }
 
+    /**
+     * Marks the changes queued by this modifier as specific to the players they are sent to. They do
+     * not become part of the {@link NPCState} of the npc and are not sent to players the npc is
+     * spawned for later on.
+     *
+     * @return The same instance of this class, for chaining.
+     */
+    @NotNull
+    public RotationModifier viewerSpecific() {
+        super.recordState = false;
+        return this;
+    }
+
     /**
      * Queues the change of the current rotation of the wrapped npc.
      *
@@ -36,30 +53,65 @@ public class RotationModifier extends AbstractModifier {
     public RotationModifier queueRotate(float yaw, float pitch) {
         byte yawAngle = (byte) (yaw * 256F / 360F);
         byte pitchAngle = (byte) (pitch * 256F / 360F);
+        if (super.recordState) {
+            super.npc.getState().updateRotation(yawAngle, pitchAngle);
+        }
+        // the receivers are unknown here, so no sent rotation can be trusted anymore
+        super.npc.forgetSentRotations();
+        return this.queueRotateAngles(yawAngle, pitchAngle);
+    }
+
+    /**
+     * Queues the change of the current rotation of the wrapped npc, given as protocol angles of
+     * 1/256 of a full turn. Unlike {@link #queueRotate(float, float)}, the rotation does not become
+     * part of the state of the npc, which allows to rotate the npc differently for each player. The
+     * sent angles have to be reported through {@link NPC#updateSentRotation} for every receiver, or be
+     * forgotten through {@link NPC#forgetSentRotations()}.
+     *
+     * @param yawAngle   The yaw angle of the target rotation.
+     * @param pitchAngle The pitch angle of the target rotation.
+     * @return The same instance of this class, for chaining.
+     */
+    @NotNull
+    public RotationModifier queueRotateAngles(byte yawAngle, byte pitchAngle) {
+        createRotation(super.npc, yawAngle, pitchAngle).forEach(super::addContainer);
+        return this;
+    }
 
-        PacketContainer entityHeadLookContainer = super
-                .newContainer(PacketType.Play.Server.ENTITY_HEAD_ROTATION);
+    /**
+     * Creates the packets changing the rotation of a npc.
+     *
+     * @param npc        The npc to rotate.
+     * @param yawAngle   The yaw angle of the target rotation.
+     * @param pitchAngle The pitch angle of the target rotation.
+     * @return The created packet containers.
+     */
+    @NotNull
+    static List<PacketContainer> createRotation(@NotNull NPC npc, byte yawAngle, byte pitchAngle) {
+        PacketContainer entityHeadLookContainer = new PacketContainer(PacketType.Play.Server.ENTITY_HEAD_ROTATION);
+        entityHeadLookContainer.getIntegers().write(0, npc.getEntityId());
         entityHeadLookContainer.getBytes().write(0, yawAngle);
 
         PacketContainer bodyRotateContainer;
         if (MINECRAFT_VERSION < 9) {
-            bodyRotateContainer = super.newContainer(PacketType.Play.Server.ENTITY_TELEPORT);
+            bodyRotateContainer = new PacketContainer(PacketType.Play.Server.ENTITY_TELEPORT);
 
-            Location location = super.npc.getLocation();
+            Location location = npc.getLocation();
             bodyRotateContainer.getIntegers()
                     .write(1, (int) Math.floor(location.getX() * 32.0D))
                     .write(2, (int) Math.floor(location.getY() * 32.0D))
                     .write(3, (int) Math.floor(location.getZ() * 32.0D));
         } else {
-            bodyRotateContainer = super.newContainer(PacketType.Play.Server.ENTITY_LOOK);
+            bodyRotateContainer = new PacketContainer(PacketType.Play.Server.ENTITY_LOOK);
         }
 
+        bodyRotateContainer.getIntegers().write(0, npc.getEntityId());
         bodyRotateContainer.getBytes()
                 .write(0, yawAngle)
                 .write(1, pitchAngle);
         bodyRotateContainer.getBooleans().write(0, true);
 
-        return this;
+        return Arrays.asList(entityHeadLookContainer, bodyRotateContainer);
     }
 
     /**
@@ -70,18 +122,61 @@ public class RotationModifier extends AbstractModifier {
      */
     @NotNull
     public RotationModifier queueLookAt(@NotNull Location location) {
-        double xDifference = location.getX() - super.npc.getLocation().getX();
-        double yDifference = location.getY() - super.npc.getLocation().getY();
-        double zDifference = location.getZ() - super.npc.getLocation().getZ();
+        int angles = lookAtAngles(super.npc.getLocation(), location);
+        super.npc.forgetSentRotations();
+        return this.queueRotateAngles(yawAngle(angles), pitchAngle(angles));
+    }
 
-        double r = Math
-                .sqrt(Math.pow(xDifference, 2) + Math.pow(yDifference, 2) + Math.pow(zDifference, 2));
+    /**
+     * Computes the protocol angles to look from one location at another.
+     *
+     * @param from     The location looking.
+     * @param location The location to look at.
+     * @return the yaw angle in the second and the pitch angle in the lowest byte
+     * @see #yawAngle(int)
+     * @see #pitchAngle(int)
+     */
+    public static int lookAtAngles(@NotNull Location from, @NotNull Location location) {
+        return AngleMath.exactLookAtAngles(
+                location.getX() - from.getX(),
+                location.getY() - from.getY(),
+                location.getZ() - from.getZ());
+    }
 
-        float yaw = (float) (-Math.atan2(xDifference, zDifference) / Math.PI * 180D);
-        yaw = yaw < 0 ? yaw + 360 : yaw;
+    /**
+     * Computes the protocol angles to look from one location at another using {@link AngleMath}.
+     * The result matches {@link #lookAtAngles(Location, Location)} within one protocol angle step.
+     *
+     * @param from     The location looking.
+     * @param location The location to look at.
+     * @return the yaw angle in the second and the pitch angle in the lowest byte
+     */
+    public static int fastLookAtAngles(@NotNull Location from, @NotNull Location location) {
+        return AngleMath.lookAtAngles(
+                location.getX() - from.getX(),
+                location.getY() - from.getY(),
+                location.getZ() - from.getZ());
+    }
 
-        float pitch = (float) (-Math.asin(yDifference / r) / Math.PI * 180D);
+    /**
+     * Get the yaw angle of packed angles.
+     *
+     * @param angles The packed angles.
+     * @return the yaw angle
+     * @see #lookAtAngles(Location, Location)
+     */
+    public static byte yawAngle(int angles) {
+        return (byte) (angles >> 8);
+    }
 
-        return this.queueRotate(yaw, pitch);
+    /**
+     * Get the pitch angle of packed angles.
+     *
+     * @param angles The packed angles.
+     * @return the pitch angle
+     * @see #lookAtAngles(Location, Location)
+     */
+    public static byte pitchAngle(int angles) {
+        return (byte) angles;
     }
 }
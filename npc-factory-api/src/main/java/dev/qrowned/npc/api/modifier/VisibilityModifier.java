@@ -11,7 +11,9 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class VisibilityModifier extends AbstractModifier {
 
@@ -48,32 +50,89 @@ public class VisibilityModifier extends AbstractModifier {
      */
     @NotNull
     public VisibilityModifier queuePlayerListChange(@NotNull EnumWrappers.PlayerInfoAction action) {
-        PacketContainer packetContainer = super.newContainer(PacketType.Play.Server.PLAYER_INFO, false);
-        packetContainer.getPlayerInfoAction().write(0, action);
-
-        PlayerInfoData playerInfoData = new PlayerInfoData(
-                super.npc.getWrappedGameProfile(),
-                20,
-                EnumWrappers.NativeGameMode.CREATIVE,
-                WrappedChatComponent.fromText(super.npc.getWrappedGameProfile().getName()));
-        packetContainer.getPlayerInfoDataLists().write(0, new ArrayList<>(List.of(playerInfoData)));
-
+        super.addContainer(super.npc.getPacketTemplates().getPlayerListChange(action));
         return this;
     }
 
     /**
-     * Enqueues the spawn of the wrapped npc.
+     * Enqueues the spawn of the wrapped npc, followed by the packets applying its current metadata,
+     * equipment and rotation.
      *
      * @return The same instance of this class, for chaining.
+     * @see NPCState#getSpawnPackets()
      */
     @NotNull
     public VisibilityModifier queueSpawn() {
-        PacketContainer packetContainer = super.newContainer(PacketType.Play.Server.NAMED_ENTITY_SPAWN);
-        packetContainer.getUUIDs().write(0, super.npc.getNpcData().getUniqueId());
+        super.addContainer(super.npc.getPacketTemplates().getSpawn());
+        super.npc.getState().getSpawnPackets().forEach(super::addContainer);
+        return this;
+    }
+
+    /**
+     * Enqueues the de-spawn of the wrapped npc.
+     *
+     * @return The same instance of this class, for chaining.
+     */
+    @NotNull
+    public VisibilityModifier queueDestroy() {
+        super.addContainer(super.npc.getPacketTemplates().getDestroy());
+        return this;
+    }
 
-        double x = super.npc.getLocation().getX();
-        double y = super.npc.getLocation().getY();
-        double z = super.npc.getLocation().getZ();
+    /**
+     * Creates the packet changing the player list for a npc.
+     *
+     * @param npc    The npc to change the player list entry of.
+     * @param action The action of the player list change as a protocol lib wrapper.
+     * @return The created packet container.
+     */
+    @NotNull
+    static PacketContainer createPlayerListChange(@NotNull NPC npc, @NotNull EnumWrappers.PlayerInfoAction action) {
+        return createPlayerListChange(List.of(npc), action);
+    }
+
+    /**
+     * Creates a single packet changing the player list entries of multiple npcs at once, instead of
+     * one packet per npc.
+     *
+     * @param npcs   The npcs to change the player list entries of.
+     * @param action The action of the player list change as a protocol lib wrapper.
+     * @return The created packet container.
+     */
+    @NotNull
+    public static PacketContainer createPlayerListChange(@NotNull Collection<NPC> npcs,
+                                                         @NotNull EnumWrappers.PlayerInfoAction action) {
+        PacketContainer packetContainer = new PacketContainer(PacketType.Play.Server.PLAYER_INFO);
+        packetContainer.getPlayerInfoAction().write(0, action);
+
+        List<PlayerInfoData> playerInfoData = new ArrayList<>(npcs.size());
+        for (NPC npc : npcs) {
+            playerInfoData.add(new PlayerInfoData(
+                    npc.getWrappedGameProfile(),
+                    20,
+                    EnumWrappers.NativeGameMode.CREATIVE,
+                    WrappedChatComponent.fromText(npc.getWrappedGameProfile().getName())));
+        }
+        packetContainer.getPlayerInfoDataLists().write(0, playerInfoData);
+
+        return packetContainer;
+    }
+
+    /**
+     * Creates the packet spawning a npc at its current location.
+     *
+     * @param npc The npc to spawn.
+     * @return The created packet container.
+     */
+    @NotNull
+    static PacketContainer createSpawn(@NotNull NPC npc) {
+        PacketContainer packetContainer = new PacketContainer(PacketType.Play.Server.NAMED_ENTITY_SPAWN);
+        packetContainer.getIntegers().write(0, npc.getEntityId());
+        packetContainer.getUUIDs().write(0, npc.getNpcData().getUniqueId());
+
+        double x = npc.getLocation().getX();
+        double y = npc.getLocation().getY();
+        double z = npc.getLocation().getZ();
 
         if (MINECRAFT_VERSION < 9) {
             packetContainer.getIntegers()
@@ -88,32 +147,49 @@ public class VisibilityModifier extends AbstractModifier {
         }
 
         packetContainer.getBytes()
-                .write(0, (byte) (super.npc.getLocation().getYaw() * 256F / 360F))
-                .write(1, (byte) (super.npc.getLocation().getPitch() * 256F / 360F));
+                .write(0, (byte) (npc.getLocation().getYaw() * 256F / 360F))
+                .write(1, (byte) (npc.getLocation().getPitch() * 256F / 360F));
 
         if (MINECRAFT_VERSION < 15) {
             packetContainer.getDataWatcherModifier().write(0, new WrappedDataWatcher());
         }
 
-        return this;
+        return packetContainer;
     }
 
     /**
-     * Enqueues the de-spawn of the wrapped npc.
+     * Creates the packet destroying a npc.
      *
-     * @return The same instance of this class, for chaining.
+     * @param npc The npc to destroy.
+     * @return The created packet container.
      */
     @NotNull
-    public VisibilityModifier queueDestroy() {
-        PacketContainer packetContainer = super
-                .newContainer(PacketType.Play.Server.ENTITY_DESTROY, false);
+    static PacketContainer createDestroy(@NotNull NPC npc) {
+        return createDestroy(List.of(npc));
+    }
+
+    /**
+     * Creates a single packet destroying multiple npcs at once, instead of one packet per npc.
+     *
+     * @param npcs The npcs to destroy.
+     * @return The created packet container.
+     */
+    @NotNull
+    public static PacketContainer createDestroy(@NotNull Collection<NPC> npcs) {
+        PacketContainer packetContainer = new PacketContainer(PacketType.Play.Server.ENTITY_DESTROY);
+
+        int[] entityIds = new int[npcs.size()];
+        int i = 0;
+        for (NPC npc : npcs) {
+            entityIds[i++] = npc.getEntityId();
+        }
 
         if (MINECRAFT_VERSION >= 17) {
-            packetContainer.getIntLists().write(0, new ArrayList<>(List.of(super.npc.getEntityId())));
+            packetContainer.getIntLists().write(0, Arrays.stream(entityIds).boxed().collect(Collectors.toList()));
         } else {
-            packetContainer.getIntegerArrays().write(0, new int[]{super.npc.getEntityId()});
+            packetContainer.getIntegerArrays().write(0, entityIds);
         }
-        return this;
+        return packetContainer;
     }
 
     /**
@@ -0,0 +1,93 @@
+package dev.qrowned.npc.api.utils;
+
+/**
+ * Fast look-at math working directly on protocol angles of 1/256 of a full turn. The arc tangent is
+ * taken from a lookup table, which is accurate to a small fraction of a protocol angle, so the
+ * results match the exact computation of {@link #exactLookAtAngles(double, double, double)} within one
+ * step.
+ */
+public final class AngleMath {
+
+    private static final int TABLE_SIZE = 1024;
+    /**
+     * The arc tangent of {@code i / TABLE_SIZE} in protocol angle units.
+     */
+    private static final float[] ARC_TANGENTS = new float[TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            ARC_TANGENTS[i] = (float) (Math.atan((double) i / TABLE_SIZE) / (2 * Math.PI) * 256D);
+        }
+    }
+
+    private AngleMath() {
+    }
+
+    /**
+     * Computes the protocol angles to look along the given direction exactly, using the trigonometric
+     * functions of {@link Math}.
+     *
+     * @param xDifference The x component of the direction.
+     * @param yDifference The y component of the direction.
+     * @param zDifference The z component of the direction.
+     * @return the yaw angle in the second and the pitch angle in the lowest byte
+     */
+    public static int exactLookAtAngles(double xDifference, double yDifference, double zDifference) {
+        double r = Math
+                .sqrt(Math.pow(xDifference, 2) + Math.pow(yDifference, 2) + Math.pow(zDifference, 2));
+
+        float yaw = (float) (-Math.atan2(xDifference, zDifference) / Math.PI * 180D);
+        yaw = yaw < 0 ? yaw + 360 : yaw;
+
+        float pitch = (float) (-Math.asin(yDifference / r) / Math.PI * 180D);
+
+        return ((byte) (yaw * 256F / 360F) & 0xFF) << 8 | ((byte) (pitch * 256F / 360F) & 0xFF);
+    }
+
+    /**
+     * Computes the protocol angles to look along the given direction, using the lookup table.
+     *
+     * @param xDifference The x component of the direction.
+     * @param yDifference The y component of the direction.
+     * @param zDifference The z component of the direction.
+     * @return the yaw angle in the second and the pitch angle in the lowest byte
+     */
+    public static int lookAtAngles(double xDifference, double yDifference, double zDifference) {
+        float yaw = -atan2(xDifference, zDifference);
+        yaw = yaw < 0 ? yaw + 256 : yaw;
+
+        double horizontal = Math.sqrt(xDifference * xDifference + zDifference * zDifference);
+        float pitch = -atan2(yDifference, horizontal);
+
+        return ((byte) yaw & 0xFF) << 8 | ((byte) pitch & 0xFF);
+    }
+
+    /**
+     * Computes the angle of the vector ({@code x}, {@code y}) like {@link Math#atan2(double, double)}.
+     *
+     * @param y The y component of the vector.
+     * @param x The x component of the vector.
+     * @return the angle in protocol angle units, between -128 and 128
+     */
+    public static float atan2(double y, double x) {
+        double absoluteX = Math.abs(x);
+        double absoluteY = Math.abs(y);
+        if (absoluteX == 0 && absoluteY == 0) {
+            return 0;
+        }
+
+        // reduce to the first octant, where the ratio is between zero and one
+        boolean steep = absoluteY > absoluteX;
+        double ratio = steep ? absoluteX / absoluteY : absoluteY / absoluteX;
+        float angle = ARC_TANGENTS[(int) (ratio * TABLE_SIZE + 0.5D)];
+
+        if (steep) {
+            angle = 64 - angle;
+        }
+        if (x < 0) {
+            angle = 128 - angle;
+        }
+        return y < 0 ? -angle : angle;
+    }
+
+}
@@ -0,0 +1,136 @@
+package dev.qrowned.npc.api.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free set of non-negative ints backed by bits. The bits are stored in pages which are only
+ * allocated once a bit of them is set, writes after that do not allocate.
+ */
+public class ConcurrentBitSet {
+
+    private static final int WORDS_PER_PAGE = 64;
+    private static final int BITS_PER_PAGE = WORDS_PER_PAGE * Long.SIZE;
+    private static final int PAGES = 16;
+
+    /**
+     * The amount of bits this set can hold.
+     */
+    public static final int CAPACITY = PAGES * BITS_PER_PAGE;
+
+    private final AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>(PAGES);
+
+    private static void checkIndex(int index) {
+        if (index < 0 || index >= CAPACITY) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for capacity " + CAPACITY);
+        }
+    }
+
+    /**
+     * Get if the bit at the given index is set.
+     *
+     * @param index The index of the bit.
+     * @return if the bit is set
+     */
+    public boolean get(int index) {
+        checkIndex(index);
+        AtomicLongArray page = this.pages.get(index / BITS_PER_PAGE);
+        return page != null && (page.get((index % BITS_PER_PAGE) >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets the bit at the given index.
+     *
+     * @param index The index of the bit.
+     * @return if the bit was not set before
+     */
+    public boolean set(int index) {
+        checkIndex(index);
+        int pageIndex = index / BITS_PER_PAGE;
+        AtomicLongArray page = this.pages.get(pageIndex);
+        if (page == null) {
+            this.pages.compareAndSet(pageIndex, null, new AtomicLongArray(WORDS_PER_PAGE));
+            page = this.pages.get(pageIndex);
+        }
+
+        int word = (index % BITS_PER_PAGE) >>> 6;
+        long mask = 1L << index;
+        long current;
+        do {
+            current = page.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(word, current, current | mask));
+        return true;
+    }
+
+    /**
+     * Clears the bit at the given index.
+     *
+     * @param index The index of the bit.
+     * @return if the bit was set before
+     */
+    public boolean clear(int index) {
+        checkIndex(index);
+        AtomicLongArray page = this.pages.get(index / BITS_PER_PAGE);
+        if (page == null) {
+            return false;
+        }
+
+        int word = (index % BITS_PER_PAGE) >>> 6;
+        long mask = 1L << index;
+        long current;
+        do {
+            current = page.get(word);
+            if ((current & mask) == 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(word, current, current & ~mask));
+        return true;
+    }
+
+    /**
+     * Get the index of the first set bit at or after the given index.
+     *
+     * @param fromIndex The index to start the search at.
+     * @return the index of the next set bit or -1 if there is none
+     */
+    public int nextSetBit(int fromIndex) {
+        for (int index = Math.max(fromIndex, 0); index < CAPACITY; ) {
+            int pageIndex = index / BITS_PER_PAGE;
+            AtomicLongArray page = this.pages.get(pageIndex);
+            if (page == null) {
+                index = (pageIndex + 1) * BITS_PER_PAGE;
+                continue;
+            }
+
+            int word = (index % BITS_PER_PAGE) >>> 6;
+            long bits = page.get(word) & (-1L << index);
+            if (bits != 0) {
+                return pageIndex * BITS_PER_PAGE + (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            index = pageIndex * BITS_PER_PAGE + ((word + 1) << 6);
+        }
+        return -1;
+    }
+
+    /**
+     * Get the amount of set bits.
+     *
+     * @return the amount of set bits
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int pageIndex = 0; pageIndex < PAGES; pageIndex++) {
+            AtomicLongArray page = this.pages.get(pageIndex);
+            if (page != null) {
+                for (int word = 0; word < WORDS_PER_PAGE; word++) {
+                    cardinality += Long.bitCount(page.get(word));
+                }
+            }
+        }
+        return cardinality;
+    }
+
+}
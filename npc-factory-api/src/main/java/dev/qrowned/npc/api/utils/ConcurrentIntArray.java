@@ -0,0 +1,67 @@
+package dev.qrowned.npc.api.utils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free array of ints indexed like a {@link ConcurrentBitSet}, usually by session index. The
+ * ints are stored in pages which are only allocated once a value of them is set, unset values are
+ * zero.
+ */
+public class ConcurrentIntArray {
+
+    private static final int INTS_PER_PAGE = 256;
+    private static final int PAGES = ConcurrentBitSet.CAPACITY / INTS_PER_PAGE;
+
+    private final AtomicReferenceArray<AtomicIntegerArray> pages = new AtomicReferenceArray<>(PAGES);
+
+    private static void checkIndex(int index) {
+        if (index < 0 || index >= ConcurrentBitSet.CAPACITY) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for capacity " + ConcurrentBitSet.CAPACITY);
+        }
+    }
+
+    /**
+     * Get the value at the given index.
+     *
+     * @param index The index of the value.
+     * @return the value or zero if it was never set
+     */
+    public int get(int index) {
+        checkIndex(index);
+        AtomicIntegerArray page = this.pages.get(index / INTS_PER_PAGE);
+        return page == null ? 0 : page.get(index % INTS_PER_PAGE);
+    }
+
+    /**
+     * Sets the value at the given index.
+     *
+     * @param index The index of the value.
+     * @param value The new value.
+     * @return the previous value
+     */
+    public int getAndSet(int index, int value) {
+        checkIndex(index);
+        int pageIndex = index / INTS_PER_PAGE;
+        AtomicIntegerArray page = this.pages.get(pageIndex);
+        if (page == null) {
+            if (value == 0) {
+                return 0;
+            }
+
+            this.pages.compareAndSet(pageIndex, null, new AtomicIntegerArray(INTS_PER_PAGE));
+            page = this.pages.get(pageIndex);
+        }
+        return page.getAndSet(index % INTS_PER_PAGE, value);
+    }
+
+    /**
+     * Resets all values to zero, releasing their pages. A value set concurrently may be reset as well.
+     */
+    public void clear() {
+        for (int i = 0; i < PAGES; i++) {
+            this.pages.set(i, null);
+        }
+    }
+
+}
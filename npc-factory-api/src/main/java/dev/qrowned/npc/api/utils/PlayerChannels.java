@@ -0,0 +1,51 @@
+package dev.qrowned.npc.api.utils;
+
+import com.comphenix.protocol.reflect.FuzzyReflection;
+import com.comphenix.protocol.utility.MinecraftFields;
+import io.netty.channel.Channel;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the netty channel of a player's connection.
+ */
+public final class PlayerChannels {
+
+    private static final Map<Class<?>, Field> CHANNEL_FIELDS = new ConcurrentHashMap<>();
+
+    private PlayerChannels() {
+    }
+
+    /**
+     * Get the netty channel of a player's connection.
+     *
+     * @param player The player to get the channel of.
+     * @return the channel or null if it could not be resolved or is not active anymore
+     */
+    @Nullable
+    public static Channel getChannel(@NotNull Player player) {
+        try {
+            Object networkManager = MinecraftFields.getNetworkManager(player);
+            if (networkManager == null) {
+                return null;
+            }
+
+            Field field = CHANNEL_FIELDS.computeIfAbsent(networkManager.getClass(), type -> {
+                Field channelField = FuzzyReflection.fromClass(type, true).getFieldByType("channel", Channel.class);
+                channelField.setAccessible(true);
+                return channelField;
+            });
+
+            Channel channel = (Channel) field.get(networkManager);
+            return channel != null && channel.isActive() ? channel : null;
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+package dev.qrowned.npc.api.utils;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Assigns every online player a dense session index, which allows to store per-player state in a
+ * {@link ConcurrentBitSet}. The index of a player is reused once it was released, so everyone storing
+ * state for an index attaches a {@link SessionListener} which clears that state on release.
+ */
+public final class PlayerSessions {
+
+    private static final Map<UUID, Integer> INDICES = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<UUID> UNIQUE_IDS = new AtomicReferenceArray<>(ConcurrentBitSet.CAPACITY);
+    private static final ConcurrentBitSet USED_INDICES = new ConcurrentBitSet();
+    private static final Map<Integer, Set<SessionListener>> LISTENERS = new ConcurrentHashMap<>();
+
+    private PlayerSessions() {
+    }
+
+    /**
+     * Get the session index of a player, assigning a new one if the player has none yet. Players which
+     * are offline never get an index assigned, as nothing would release it again.
+     *
+     * @param player The player.
+     * @return the session index of the player or -1 if the player has none and is offline
+     */
+    public static int getOrCreateIndex(@NotNull Player player) {
+        Integer index = INDICES.get(player.getUniqueId());
+        if (index != null) {
+            return index;
+        }
+        return player.isOnline() ? INDICES.computeIfAbsent(player.getUniqueId(), PlayerSessions::allocate) : -1;
+    }
+
+    /**
+     * Get the session index of a player.
+     *
+     * @param uniqueId The unique id of the player.
+     * @return the session index of the player or -1 if the player has none
+     */
+    public static int getIndex(@NotNull UUID uniqueId) {
+        Integer index = INDICES.get(uniqueId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Get the unique id of the player a session index is assigned to.
+     *
+     * @param index The session index.
+     * @return the unique id of the player or null if the index is not assigned
+     */
+    public static UUID getUniqueId(int index) {
+        return UNIQUE_IDS.get(index);
+    }
+
+    /**
+     * Attaches a listener to a session index, which is notified once the index is released. Attaching
+     * the same listener multiple times notifies it only once.
+     *
+     * @param index    The session index.
+     * @param listener The listener clearing the state stored for the index.
+     */
+    public static void attach(int index, @NotNull SessionListener listener) {
+        LISTENERS.computeIfAbsent(index, key -> ConcurrentHashMap.newKeySet()).add(listener);
+    }
+
+    /**
+     * Releases the session index of a player once the player left, notifying every listener attached
+     * to the index. Must only be called once everything else is done with the player.
+     *
+     * @param uniqueId The unique id of the player.
+     */
+    public static void release(@NotNull UUID uniqueId) {
+        Integer index = INDICES.remove(uniqueId);
+        if (index != null) {
+            notifyListeners(index, uniqueId);
+            UNIQUE_IDS.set(index, null);
+            USED_INDICES.clear(index);
+        }
+    }
+
+    /**
+     * Creates a read only view of the players whose session index is set in the given bits.
+     *
+     * @param bits The bits holding session indices.
+     * @return a view of the unique ids of the players
+     */
+    @NotNull
+    @Unmodifiable
+    public static List<UUID> view(@NotNull ConcurrentBitSet bits) {
+        return new SessionList(bits);
+    }
+
+    private static int allocate(@NotNull UUID uniqueId) {
+        int index = 0;
+        while (!USED_INDICES.set(index)) {
+            index++;
+        }
+
+        // state attached by someone still holding the index of the previous player must not be inherited
+        notifyListeners(index, UNIQUE_IDS.getAndSet(index, uniqueId));
+        return index;
+    }
+
+    private static void notifyListeners(int index, @Nullable UUID uniqueId) {
+        Set<SessionListener> listeners = LISTENERS.remove(index);
+        if (listeners != null) {
+            for (SessionListener listener : listeners) {
+                listener.release(index, uniqueId);
+            }
+        }
+    }
+
+    /**
+     * A listener clearing the state stored for a session index once the index is released.
+     */
+    @FunctionalInterface
+    public interface SessionListener {
+
+        /**
+         * Called once a session index is released.
+         *
+         * @param index    The released session index.
+         * @param uniqueId The unique id of the player the index was assigned to, or null if the state
+         *                 was attached after the index was already released.
+         */
+        void release(int index, @Nullable UUID uniqueId);
+    }
+
+    /**
+     * A lazy list view of the unique ids of the players whose session index is set in a bit set.
+     */
+    private static final class SessionList extends AbstractList<UUID> {
+
+        private final ConcurrentBitSet bits;
+
+        private SessionList(@NotNull ConcurrentBitSet bits) {
+            this.bits = bits;
+        }
+
+        @Override
+        public UUID get(int index) {
+            int position = 0;
+            for (UUID uniqueId : this) {
+                if (position++ == index) {
+                    return uniqueId;
+                }
+            }
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + position);
+        }
+
+        @Override
+        public int size() {
+            return this.bits.cardinality();
+        }
+
+        @Override
+        public boolean contains(Object object) {
+            if (!(object instanceof UUID)) {
+                return false;
+            }
+
+            int index = getIndex((UUID) object);
+            return index >= 0 && this.bits.get(index);
+        }
+
+        @NotNull
+        @Override
+        public Iterator<UUID> iterator() {
+            return new Iterator<>() {
+                private int nextIndex = this.advance(0);
+
+                private int advance(int fromIndex) {
+                    int index = bits.nextSetBit(fromIndex);
+                    while (index >= 0 && getUniqueId(index) == null) {
+                        index = bits.nextSetBit(index + 1);
+                    }
+                    return index;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return this.nextIndex >= 0;
+                }
+
+                @Override
+                public UUID next() {
+                    if (this.nextIndex < 0) {
+                        throw new NoSuchElementException();
+                    }
+
+                    UUID uniqueId = getUniqueId(this.nextIndex);
+                    this.nextIndex = this.advance(this.nextIndex + 1);
+                    return uniqueId;
+                }
+            };
+        }
+
+        @Override
+        public void forEach(@NotNull Consumer<? super UUID> action) {
+            for (int index = this.bits.nextSetBit(0); index >= 0; index = this.bits.nextSetBit(index + 1)) {
+                UUID uniqueId = getUniqueId(index);
+                if (uniqueId != null) {
+                    action.accept(uniqueId);
+                }
+            }
+        }
+    }
+
+}
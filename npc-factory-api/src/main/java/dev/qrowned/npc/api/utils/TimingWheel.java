@@ -0,0 +1,178 @@
+package dev.qrowned.npc.api.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A hierarchical timing wheel running delayed tasks in bulk, driven by calling {@link #tick()} once
+ * every server tick. Tasks can be scheduled from any thread, they are executed on the thread calling
+ * {@link #tick()}. Scheduling and cancelling a task is O(1), no matter how many tasks are pending.
+ */
+public class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 3;
+
+    private final Queue<Timeout> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+    private final List<List<Timeout>> wheels = new ArrayList<>(LEVELS * SLOTS);
+    private final List<Timeout> overflow = new ArrayList<>();
+
+    private volatile long currentTick;
+
+    public TimingWheel() {
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            this.wheels.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Schedules a task to run after the given amount of ticks.
+     *
+     * @param task       The task to run.
+     * @param delayTicks The ticks to wait before running the task, at least one tick is waited.
+     * @return the timeout of the task, allowing to cancel it
+     */
+    @NotNull
+    public Timeout schedule(@NotNull Runnable task, long delayTicks) {
+        Timeout timeout = new Timeout(task);
+        timeout.deadline = this.currentTick + Math.max(delayTicks, 1);
+        this.scheduledTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Advances this wheel by one tick and runs all tasks which are due.
+     */
+    public void tick() {
+        long tick = this.currentTick + 1;
+        this.currentTick = tick;
+
+        Timeout scheduled;
+        while ((scheduled = this.scheduledTimeouts.poll()) != null) {
+            this.insert(scheduled);
+        }
+
+        // move the tasks of the higher levels down once their slot is reached
+        if ((tick & ((1L << (SLOT_BITS * 2)) - 1)) == 0) {
+            this.cascade(2, (int) ((tick >>> (SLOT_BITS * 2)) & SLOT_MASK));
+
+            List<Timeout> overflow = new ArrayList<>(this.overflow);
+            this.overflow.clear();
+            overflow.forEach(this::insert);
+        }
+        if ((tick & SLOT_MASK) == 0) {
+            this.cascade(1, (int) ((tick >>> SLOT_BITS) & SLOT_MASK));
+        }
+
+        List<Timeout> slot = this.wheels.get((int) (tick & SLOT_MASK));
+        if (slot.isEmpty()) {
+            return;
+        }
+
+        List<Timeout> dueTimeouts = new ArrayList<>(slot);
+        slot.clear();
+        for (Timeout timeout : dueTimeouts) {
+            timeout.run();
+        }
+    }
+
+    /**
+     * Get the amount of ticks this wheel has advanced.
+     *
+     * @return the current tick of this wheel
+     */
+    public long getCurrentTick() {
+        return this.currentTick;
+    }
+
+    private void cascade(int level, int slotIndex) {
+        List<Timeout> slot = this.wheels.get(level * SLOTS + slotIndex);
+        if (slot.isEmpty()) {
+            return;
+        }
+
+        List<Timeout> timeouts = new ArrayList<>(slot);
+        slot.clear();
+        timeouts.forEach(this::insert);
+    }
+
+    private void insert(@NotNull Timeout timeout) {
+        if (timeout.isCancelled()) {
+            return;
+        }
+
+        long remaining = timeout.deadline - this.currentTick;
+        if (remaining <= 0) {
+            // due in this tick, the slot of this tick is run right after inserting
+            this.wheels.get((int) (this.currentTick & SLOT_MASK)).add(timeout);
+            return;
+        }
+
+        for (int level = 0; level < LEVELS; level++) {
+            if (remaining < 1L << (SLOT_BITS * (level + 1))) {
+                int slotIndex = (int) ((timeout.deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+                this.wheels.get(level * SLOTS + slotIndex).add(timeout);
+                return;
+            }
+        }
+        this.overflow.add(timeout);
+    }
+
+    /**
+     * A task scheduled in a timing wheel.
+     */
+    public static class Timeout implements Runnable {
+
+        private final Runnable task;
+        private volatile boolean cancelled;
+        private long deadline;
+
+        /**
+         * Creates a new timeout, which can also be run by other schedulers.
+         *
+         * @param task The task to run.
+         */
+        public Timeout(@NotNull Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Cancels this timeout, its task will not run if it did not run yet.
+         */
+        public void cancel() {
+            this.cancelled = true;
+        }
+
+        /**
+         * Get if this timeout was cancelled.
+         *
+         * @return if this timeout was cancelled
+         */
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        /**
+         * Runs the task of this timeout unless it was cancelled.
+         */
+        @Override
+        public void run() {
+            if (this.cancelled) {
+                return;
+            }
+
+            try {
+                this.task.run();
+            } catch (RuntimeException exception) {
+                exception.printStackTrace();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package dev.qrowned.npc.api.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileCacheTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @Test
+    void cachesUniqueIdsIgnoringTheCaseOfNames() {
+        ProfileCache cache = ProfileCache.create();
+        UUID uniqueId = UUID.randomUUID();
+
+        assertNull(cache.getUniqueId("Notch"));
+        cache.putUniqueId("Notch", uniqueId);
+
+        ProfileCache.Entry<UUID> entry = cache.getUniqueId("NOTCH");
+        assertNotNull(entry);
+        assertFalse(entry.isNegative());
+        assertEquals(uniqueId, entry.getValue());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void cachesMissingPlayersForTheNegativeTtl() {
+        ProfileCache expiring = ProfileCache.create(ProfileCache.DEFAULT_MAX_WEIGHT, HOUR, 0);
+        expiring.putUniqueId("Nobody", null);
+        assertNull(expiring.getUniqueId("Nobody"));
+        assertEquals(0, expiring.size());
+
+        ProfileCache cache = ProfileCache.create(ProfileCache.DEFAULT_MAX_WEIGHT, 0, HOUR);
+        UUID uniqueId = UUID.randomUUID();
+        cache.putProfile(uniqueId, null);
+        cache.putUniqueId("Notch", UUID.randomUUID());
+
+        ProfileCache.Entry<ProfileResolver.Profile> entry = cache.getProfile(uniqueId);
+        assertNotNull(entry);
+        assertTrue(entry.isNegative());
+        // found results expire separately
+        assertNull(cache.getUniqueId("Notch"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        ProfileCache cache = ProfileCache.create(1024, HOUR, HOUR);
+        UUID first = UUID.randomUUID();
+        cache.putProfile(first, new ProfileResolver.Profile(first, "First", List.of()));
+        for (int i = 0; i < 100; i++) {
+            // keeps the first entry the most recently used one
+            assertNotNull(cache.getProfile(first));
+            cache.putUniqueId("Player" + i, UUID.randomUUID());
+        }
+
+        assertTrue(cache.getWeight() <= 1024);
+        assertTrue(cache.getEvictions() > 0);
+        assertNotNull(cache.getProfile(first));
+        assertNull(cache.getUniqueId("Player0"));
+        assertNotNull(cache.getUniqueId("Player99"));
+    }
+
+    @Test
+    void replacesEntriesWithoutLeakingWeight() {
+        ProfileCache cache = ProfileCache.create();
+        cache.putUniqueId("Notch", null);
+        long weight = cache.getWeight();
+
+        cache.putUniqueId("Notch", null);
+        assertEquals(weight, cache.getWeight());
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.getWeight());
+        assertEquals(0, cache.size());
+    }
+
+}
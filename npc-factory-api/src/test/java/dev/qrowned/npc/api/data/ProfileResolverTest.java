@@ -0,0 +1,131 @@
+package dev.qrowned.npc.api.data;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileResolverTest {
+
+    private static final UUID UNIQUE_ID = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+    private static final String UNIQUE_ID_RESPONSE = "{\"id\":\"069a79f444e94726a5befca90e38aaf5\",\"name\":\"Notch\"}";
+    private static final String PROFILE_RESPONSE = "{\"id\":\"069a79f444e94726a5befca90e38aaf5\",\"name\":\"Notch\","
+            + "\"properties\":[{\"name\":\"textures\",\"value\":\"dGV4dHVyZXM=\",\"signature\":\"c2lnbmF0dXJl\"}]}";
+
+    private final AtomicInteger uniqueIdHits = new AtomicInteger();
+    private final AtomicInteger profileHits = new AtomicInteger();
+    private volatile int uniqueIdStatus = 200;
+    private volatile CountDownLatch uniqueIdLatch = new CountDownLatch(0);
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private ProfileResolver resolver;
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        SkinStore.setDefault(null);
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/users/", exchange -> {
+            this.uniqueIdHits.incrementAndGet();
+            try {
+                this.uniqueIdLatch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (exchange.getRequestURI().getPath().endsWith("/Notch")) {
+                int status = this.uniqueIdStatus;
+                respond(exchange, status, status == 200 ? UNIQUE_ID_RESPONSE : "");
+            } else {
+                respond(exchange, 404, "");
+            }
+        });
+        this.server.createContext("/profile/", exchange -> {
+            this.profileHits.incrementAndGet();
+            respond(exchange, 200, PROFILE_RESPONSE);
+        });
+        this.executor = Executors.newCachedThreadPool();
+        this.server.setExecutor(this.executor);
+        this.server.start();
+
+        String url = "http://127.0.0.1:" + this.server.getAddress().getPort();
+        this.resolver = ProfileResolver.create(url + "/users/%s", url + "/profile/%s?unsigned=%b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void sharesConcurrentRequestsForTheSameName() {
+        this.uniqueIdLatch = new CountDownLatch(1);
+
+        NPCData first = NPCData.create("Notch");
+        NPCData second = NPCData.create("Notch");
+        CompletableFuture<Boolean> firstFuture = first.completeAsync(this.resolver, true);
+        CompletableFuture<Boolean> secondFuture = second.completeAsync(this.resolver, true);
+        this.uniqueIdLatch.countDown();
+
+        assertTrue(firstFuture.join());
+        assertTrue(secondFuture.join());
+        assertEquals(1, this.uniqueIdHits.get());
+        assertEquals(1, this.profileHits.get());
+        assertEquals(UNIQUE_ID, first.getUniqueId());
+        assertEquals(UNIQUE_ID, second.getUniqueId());
+        assertEquals(1, first.getProperties().size());
+    }
+
+    @Test
+    void completesUnknownNamesWithFalse() {
+        assertFalse(NPCData.create("Nobody").completeAsync(this.resolver, true).join());
+        assertFalse(NPCData.create("Nobody").completeAsync(this.resolver, true).join());
+        // the missing player is cached
+        assertEquals(1, this.uniqueIdHits.get());
+        assertEquals(0, this.profileHits.get());
+    }
+
+    @Test
+    void doesNotCacheRateLimitedRequests() {
+        this.uniqueIdStatus = 429;
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> NPCData.create("Notch").completeAsync(this.resolver, false).join());
+        assertInstanceOf(UncheckedIOException.class, exception.getCause());
+
+        this.uniqueIdStatus = 200;
+        NPCData data = NPCData.create("Notch");
+        assertTrue(data.completeAsync(this.resolver, false).join());
+        assertEquals(UNIQUE_ID, data.getUniqueId());
+        assertEquals(2, this.uniqueIdHits.get());
+    }
+
+}
@@ -0,0 +1,113 @@
+package dev.qrowned.npc.api.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SkinStoreTest {
+
+    private static final UUID UNIQUE_ID = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+
+    private Path directory;
+    private Path path;
+
+    private static ProfileResolver.Profile profile(UUID uniqueId, String name) {
+        return new ProfileResolver.Profile(uniqueId, name, List.of(
+                new NPCData.Property("textures", "dGV4dHVyZXM=", "c2lnbmF0dXJl"),
+                new NPCData.Property("unsigned", "dmFsdWU=", null)));
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("skin-store");
+        this.path = this.directory.resolve("shared").resolve("skins.store");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void readsAppendedProfilesAfterReopening() throws IOException {
+        try (SkinStore store = SkinStore.open(this.path)) {
+            assertTrue(store.append(profile(UNIQUE_ID, "Notch")));
+            assertFalse(store.append(profile(UNIQUE_ID, "Notch")));
+        }
+
+        try (SkinStore store = SkinStore.open(this.path)) {
+            assertEquals(1, store.size());
+            assertEquals(UNIQUE_ID, store.getUniqueId("notch"));
+
+            ProfileResolver.Profile profile = store.getProfile(UNIQUE_ID);
+            assertNotNull(profile);
+            assertEquals("Notch", profile.getName());
+            assertEquals(2, profile.getProperties().size());
+            for (NPCData.Property property : profile.getProperties()) {
+                assertEquals(property.getName().equals("textures"), property.isSigned());
+            }
+        }
+    }
+
+    @Test
+    void seesProfilesAppendedThroughOtherStores() throws IOException {
+        try (SkinStore first = SkinStore.open(this.path); SkinStore second = SkinStore.open(this.path)) {
+            assertNull(second.getProfile(UNIQUE_ID));
+
+            assertTrue(first.append(profile(UNIQUE_ID, "Notch")));
+            assertNotNull(second.getProfile(UNIQUE_ID));
+            // the profile was appended by another store already
+            assertFalse(second.append(profile(UNIQUE_ID, "Notch")));
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Files.createDirectories(this.path.getParent());
+        Files.write(this.path, "no skin store at all".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> SkinStore.open(this.path));
+    }
+
+    @Test
+    void skipsRecordsWithCorruptedPropertyCounts() throws IOException {
+        byte[] name = "Notch".getBytes(StandardCharsets.UTF_8);
+        int recordLength = 2 * Long.BYTES + Integer.BYTES + Integer.BYTES + name.length;
+        ByteBuffer file = ByteBuffer.allocate(16 + Integer.BYTES + recordLength)
+                .putInt(0x4E504353)
+                .putInt(1)
+                .putLong(16 + Integer.BYTES + recordLength)
+                .putInt(recordLength)
+                .putLong(UNIQUE_ID.getMostSignificantBits())
+                .putLong(UNIQUE_ID.getLeastSignificantBits())
+                // far more properties than the record can hold
+                .putInt(Integer.MAX_VALUE)
+                .putInt(name.length)
+                .put(name);
+        Files.createDirectories(this.path.getParent());
+        Files.write(this.path, file.array());
+
+        try (SkinStore store = SkinStore.open(this.path)) {
+            assertEquals(0, store.size());
+            assertTrue(store.append(profile(UNIQUE_ID, "Notch")));
+            assertNotNull(store.getProfile(UNIQUE_ID));
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package dev.qrowned.npc.api.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link AngleMath#lookAtAngles(double, double, double)} against the exact computation of
+ * {@link AngleMath#exactLookAtAngles(double, double, double)}, which uses {@link Math#atan2(double, double)}
+ * and {@link Math#asin(double)}. Run through {@link #main(String[])} after compiling the test sources.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AngleMathBenchmark {
+
+    private static final int OFFSETS = 4096;
+
+    private final double[] offsets = new double[OFFSETS * 3];
+    private int index;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AngleMathBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < this.offsets.length; i++) {
+            this.offsets[i] = random.nextDouble(-64, 64);
+        }
+    }
+
+    @Benchmark
+    public int exact() {
+        int offset = this.nextOffset();
+        return AngleMath.exactLookAtAngles(this.offsets[offset], this.offsets[offset + 1], this.offsets[offset + 2]);
+    }
+
+    @Benchmark
+    public int lookupTable() {
+        int offset = this.nextOffset();
+        return AngleMath.lookAtAngles(this.offsets[offset], this.offsets[offset + 1], this.offsets[offset + 2]);
+    }
+
+    private int nextOffset() {
+        this.index = (this.index + 1) & (OFFSETS - 1);
+        return this.index * 3;
+    }
+
+}
@@ -0,0 +1,58 @@
+package dev.qrowned.npc.api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AngleMathTest {
+
+    private static final int SAMPLES = 1_000_000;
+
+    private static int stepDistance(int first, int second) {
+        int distance = Math.abs(first - second);
+        // protocol angles wrap around after a full turn
+        return Math.min(distance, 256 - distance);
+    }
+
+    @Test
+    void lookAtAnglesStayWithinOneStep() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = random.nextDouble(-64, 64);
+            double y = random.nextDouble(-16, 16);
+            double z = random.nextDouble(-64, 64);
+
+            int angles = AngleMath.lookAtAngles(x, y, z);
+            int exact = AngleMath.exactLookAtAngles(x, y, z);
+            assertTrue(stepDistance(angles >> 8 & 0xFF, exact >> 8 & 0xFF) <= 1,
+                    () -> "yaw of " + x + ", " + y + ", " + z + " differs by more than one step");
+            assertTrue(stepDistance(angles & 0xFF, exact & 0xFF) <= 1,
+                    () -> "pitch of " + x + ", " + y + ", " + z + " differs by more than one step");
+        }
+    }
+
+    @Test
+    void axisDirectionsAreExact() {
+        assertEquals(AngleMath.exactLookAtAngles(0, 0, 1), AngleMath.lookAtAngles(0, 0, 1));
+        assertEquals(AngleMath.exactLookAtAngles(0, 0, -1), AngleMath.lookAtAngles(0, 0, -1));
+        assertEquals(AngleMath.exactLookAtAngles(1, 0, 0), AngleMath.lookAtAngles(1, 0, 0));
+        assertEquals(AngleMath.exactLookAtAngles(-1, 0, 0), AngleMath.lookAtAngles(-1, 0, 0));
+        assertEquals(AngleMath.exactLookAtAngles(0, 1, 0), AngleMath.lookAtAngles(0, 1, 0));
+        assertEquals(AngleMath.exactLookAtAngles(0, -1, 0), AngleMath.lookAtAngles(0, -1, 0));
+    }
+
+    @Test
+    void atan2MatchesMathAtan2() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < SAMPLES; i++) {
+            double y = random.nextDouble(-1, 1);
+            double x = random.nextDouble(-1, 1);
+            double exact = Math.atan2(y, x) / (2 * Math.PI) * 256D;
+            assertEquals(exact, AngleMath.atan2(y, x), 0.25D);
+        }
+    }
+
+}
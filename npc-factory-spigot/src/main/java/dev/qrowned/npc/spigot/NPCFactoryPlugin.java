@@ -1,10 +1,14 @@
 package dev.qrowned.npc.spigot;
 
+import dev.qrowned.npc.api.data.SkinStore;
 import dev.qrowned.npc.api.handler.NPCHandler;
 import dev.qrowned.npc.spigot.handler.DefaultNPCHandler;
 import lombok.Getter;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 @Getter
 public class NPCFactoryPlugin extends JavaPlugin {
 
@@ -18,7 +22,56 @@ public class NPCFactoryPlugin extends JavaPlugin {
         instance = this;
         this.getLogger().info("Loading NPC Factory Plugin...");
 
+        this.getServer().getPluginManager().registerEvents(new PlayerSessionListener(), this);
         this.npcHandler = DefaultNPCHandler.create(20, 10, 10);
+        this.openSkinStore();
+    }
+
+    @Override
+    public void onDisable() {
+        if (this.npcHandler != null) {
+            this.npcHandler.shutdown();
+        }
+
+        SkinStore skinStore = SkinStore.getDefault();
+        if (skinStore != null) {
+            SkinStore.setDefault(null);
+            try {
+                skinStore.close();
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+        }
+    }
+
+    private void openSkinStore() {
+        // the system property overrides the location of the store
+        if (System.getProperty(SkinStore.PATH_PROPERTY) != null) {
+            return;
+        }
+
+        try {
+            SkinStore.setDefault(SkinStore.open(this.getSharedSkinStorePath()));
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the path of the skin store shared by all servers of this host. The servers of a host are
+     * usually located next to each other, so the store is placed in the parent directory of the world
+     * container of this server.
+     *
+     * @return the path of the shared skin store
+     */
+    private Path getSharedSkinStorePath() {
+        Path worldContainer = this.getServer().getWorldContainer().toPath().toAbsolutePath().normalize();
+        Path sharedFolder = worldContainer.getParent();
+        if (sharedFolder == null) {
+            // the server is located at the root of the file system, there is nothing to share with
+            return this.getDataFolder().toPath().resolve("skins.store");
+        }
+        return sharedFolder.resolve("npc-factory").resolve("skins.store");
     }
 
 }
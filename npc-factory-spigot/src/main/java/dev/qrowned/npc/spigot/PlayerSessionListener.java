@@ -0,0 +1,27 @@
+package dev.qrowned.npc.spigot;
+
+import dev.qrowned.npc.api.utils.PlayerSessions;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Opens the session of a player before anyone else handles the join and releases it after everyone
+ * handled the quit, see {@link PlayerSessions}. There is exactly one such listener, as the sessions are
+ * shared by all npc handlers.
+ */
+public class PlayerSessionListener implements Listener {
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void handleJoin(PlayerJoinEvent event) {
+        PlayerSessions.getOrCreateIndex(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void handleQuit(PlayerQuitEvent event) {
+        PlayerSessions.release(event.getPlayer().getUniqueId());
+    }
+
+}
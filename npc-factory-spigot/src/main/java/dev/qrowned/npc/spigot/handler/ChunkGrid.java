@@ -0,0 +1,101 @@
+package dev.qrowned.npc.spigot.handler;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A per-world grid of chunk sized cells holding the elements located in them, working on plain block
+ * coordinates.
+ *
+ * @param <T> The type of the elements.
+ * @see NPCSpatialIndex
+ */
+class ChunkGrid<T> {
+
+    private final Map<UUID, Map<Long, Set<T>>> worlds = new ConcurrentHashMap<>();
+
+    /**
+     * Get the key of the cell at the given chunk coordinates.
+     *
+     * @param chunkX The x coordinate of the chunk.
+     * @param chunkZ The z coordinate of the chunk.
+     * @return the key of the cell.
+     */
+    private static long cellKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Adds an element to the cell of the given location.
+     *
+     * @param worldId The unique id of the world of the element.
+     * @param x       The x coordinate of the element.
+     * @param z       The z coordinate of the element.
+     * @param element The element to add.
+     */
+    void add(@NotNull UUID worldId, double x, double z, @NotNull T element) {
+        this.worlds.computeIfAbsent(worldId, uuid -> new ConcurrentHashMap<>())
+                .compute(cellKey((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4), (key, cell) -> {
+                    Set<T> elements = cell == null ? ConcurrentHashMap.newKeySet() : cell;
+                    elements.add(element);
+                    return elements;
+                });
+    }
+
+    /**
+     * Removes an element from the cell of the given location.
+     *
+     * @param worldId The unique id of the world of the element.
+     * @param x       The x coordinate of the element.
+     * @param z       The z coordinate of the element.
+     * @param element The element to remove.
+     */
+    void remove(@NotNull UUID worldId, double x, double z, @NotNull T element) {
+        Map<Long, Set<T>> cells = this.worlds.get(worldId);
+        if (cells == null) {
+            return;
+        }
+
+        cells.computeIfPresent(cellKey((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4), (key, cell) -> {
+            cell.remove(element);
+            return cell.isEmpty() ? null : cell;
+        });
+    }
+
+    /**
+     * Passes every element in the cells touched by the square around the given center to the
+     * consumer. The elements are not filtered by their exact distance to the center.
+     *
+     * @param worldId  The unique id of the world to search in.
+     * @param x        The x coordinate of the center.
+     * @param z        The z coordinate of the center.
+     * @param radius   The radius of the search in blocks.
+     * @param consumer The consumer accepting the elements.
+     */
+    void forEachNear(@NotNull UUID worldId, double x, double z, double radius, @NotNull Consumer<T> consumer) {
+        Map<Long, Set<T>> cells = this.worlds.get(worldId);
+        if (cells == null || cells.isEmpty()) {
+            return;
+        }
+
+        int minChunkX = (int) Math.floor(x - radius) >> 4;
+        int maxChunkX = (int) Math.floor(x + radius) >> 4;
+        int minChunkZ = (int) Math.floor(z - radius) >> 4;
+        int maxChunkZ = (int) Math.floor(z + radius) >> 4;
+
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                Set<T> cell = cells.get(cellKey(chunkX, chunkZ));
+                if (cell != null) {
+                    cell.forEach(consumer);
+                }
+            }
+        }
+    }
+
+}
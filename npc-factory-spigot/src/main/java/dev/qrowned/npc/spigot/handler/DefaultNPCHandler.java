@@ -5,42 +5,134 @@ import com.comphenix.protocol.ProtocolLibrary;
 import com.comphenix.protocol.events.PacketAdapter;
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.events.PacketListener;
 import com.comphenix.protocol.wrappers.EnumWrappers;
 import com.comphenix.protocol.wrappers.WrappedEnumEntityUseAction;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import dev.qrowned.npc.api.NPC;
+import dev.qrowned.npc.api.event.AsyncPlayerNPCInteractEvent;
+import dev.qrowned.npc.api.event.NPCEventDispatcher;
 import dev.qrowned.npc.api.event.PlayerNPCHideEvent;
 import dev.qrowned.npc.api.event.PlayerNPCInteractEvent;
 import dev.qrowned.npc.api.handler.NPCHandler;
 import dev.qrowned.npc.api.modifier.AbstractModifier;
 import dev.qrowned.npc.api.modifier.AnimationModifier;
 import dev.qrowned.npc.api.modifier.MetadataModifier;
+import dev.qrowned.npc.api.modifier.PacketBatcher;
+import dev.qrowned.npc.api.modifier.RotationModifier;
+import dev.qrowned.npc.api.modifier.VisibilityModifier;
+import dev.qrowned.npc.api.utils.TimingWheel;
 import dev.qrowned.npc.spigot.NPCFactoryPlugin;
+import lombok.Getter;
+import lombok.Setter;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
 import org.bukkit.event.block.Action;
-import org.bukkit.event.player.PlayerInteractEvent;
-import org.bukkit.event.player.PlayerQuitEvent;
-import org.bukkit.event.player.PlayerRespawnEvent;
-import org.bukkit.event.player.PlayerToggleSneakEvent;
+import org.bukkit.event.player.*;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Unmodifiable;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class DefaultNPCHandler implements NPCHandler {
 
-    private static final Random RANDOM = new Random();
+    /**
+     * The amount of tick runs after which every online player is re-evaluated, catching changes
+     * which are not driven by player events such as exclusions or chunk (un-)loads.
+     */
+    private static final int FULL_REFRESH_INTERVAL = 20;
+    /**
+     * The period of the npc tick in server ticks.
+     */
+    private static final long TICK_PERIOD = 2;
+    /**
+     * The amount of players per evaluating thread taken from the dirty queue at once.
+     */
+    private static final int EVALUATION_BATCH_FACTOR = 16;
+    /**
+     * The default amount of interactions per second a player may do with a single npc.
+     */
+    private static final double INTERACTIONS_PER_SECOND = 10;
+    /**
+     * The default amount of interactions a player may do with a single npc at once.
+     */
+    private static final int INTERACTION_BURST = 4;
+    /**
+     * The amount of threads delivering interactions asynchronously. Interactions exceeding the threads
+     * wait in the queues of their players, which are kept short by the {@link InteractionLimiter}.
+     */
+    private static final int INTERACTION_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
 
     private final double spawnDistance;
+    private final double spawnRadius;
     private final double actionDistance;
+    private final double actionRadius;
     private final long tabListRemoveTicks;
 
-    private final Map<Integer, NPC> npcMap = new ConcurrentHashMap<>();
+    private final NPCRegistry npcRegistry = new NPCRegistry();
+    private final EntityIdAllocator entityIdAllocator = new EntityIdAllocator();
+    private final PacketBatcher packetBatcher = new PacketBatcher();
+    private final NPCSpatialIndex npcIndex = new NPCSpatialIndex();
+    private final TimingWheel timingWheel = new TimingWheel();
+    private final NPCEventDispatcher eventDispatcher = new NPCEventDispatcher();
+    /**
+     * The limiter dropping duplicate and excessive interactions with npcs, see
+     * {@link InteractionLimiter#setLimit(double, int)} to configure the limit.
+     */
+    @Getter
+    private final InteractionLimiter interactionLimiter = new InteractionLimiter(INTERACTIONS_PER_SECOND, INTERACTION_BURST);
+    private final Map<UUID, Set<NPC>> visibleNPCs = new ConcurrentHashMap<>();
+
+    private final Map<UUID, Long> dirtyPlayers = new ConcurrentHashMap<>();
+    private final Queue<UUID> dirtyQueue = new ConcurrentLinkedQueue<>();
+    private final Set<UUID> movedPlayers = ConcurrentHashMap.newKeySet();
+    /**
+     * The moved players whose look-at was not evaluated yet, taken from {@link #movedPlayers}.
+     */
+    private final Queue<Player> lookAtQueue = new ConcurrentLinkedQueue<>();
+    /**
+     * The decisions which were made but not applied yet, in the order they were made.
+     */
+    private final Queue<VisibilityDecision> pendingDecisions = new ConcurrentLinkedQueue<>();
+    private final AtomicLong tickRuns = new AtomicLong();
+    /**
+     * If any npc with an entity id outside the reserved range of the {@link EntityIdAllocator} was
+     * handled, which disables rejecting interactions by their id range alone.
+     */
+    private volatile boolean hasCustomIds;
+
+    /**
+     * The time in nanoseconds a single tick run may spend on evaluating the visibility and look-at of
+     * npcs and applying the decisions. Decisions which could not be applied in time are applied first by
+     * the next run, players which could not be evaluated in time are continued with afterwards.
+     */
+    @Setter
+    private volatile long tickBudgetNanos = TimeUnit.MILLISECONDS.toNanos(2);
+    private volatile ForkJoinPool evaluationPool;
+
+    private volatile InteractionDelivery interactionDelivery = InteractionDelivery.SYNC;
+    private volatile PlayerSerialExecutor interactionExecutor;
+    private ExecutorService interactionPool;
+
+    private PacketListener interactListener;
+    private BukkitTask npcTickTask;
+    private BukkitTask timingWheelTask;
 
     private DefaultNPCHandler(double spawnDistance, double actionDistance, long tabListRemoveTicks) {
         Preconditions.checkArgument(spawnDistance > 0 && actionDistance > 0, "Distance has to be > 0!");
@@ -50,13 +142,21 @@ public class DefaultNPCHandler implements NPCHandler {
         this.spawnDistance = Math.min(
                 spawnDistance * spawnDistance,
                 Math.pow(Bukkit.getViewDistance() << 4, 2));
+        this.spawnRadius = Math.sqrt(this.spawnDistance);
         this.actionDistance = actionDistance * actionDistance;
+        this.actionRadius = actionDistance;
         this.tabListRemoveTicks = tabListRemoveTicks;
 
         Bukkit.getPluginManager().registerEvents(this, NPCFactoryPlugin.getInstance());
 
         this.registerInteractHandler();
         this.startNPCTick();
+        this.timingWheelTask = Bukkit.getScheduler().runTaskTimer(NPCFactoryPlugin.getInstance(), () -> {
+            this.timingWheel.tick();
+            this.eventDispatcher.drain();
+            // the only flush of the connections of the players for all npc packets of this tick
+            this.packetBatcher.flush();
+        }, 1, 1);
     }
 
     public static DefaultNPCHandler create(double spawnDistance, double actionDistance, long tabListRemoveTicks) {
@@ -64,147 +164,562 @@ public class DefaultNPCHandler implements NPCHandler {
     }
 
     private void registerInteractHandler() {
-        ProtocolLibrary.getProtocolManager()
-                .addPacketListener(new PacketAdapter(NPCFactoryPlugin.getInstance(), PacketType.Play.Client.USE_ENTITY) {
-                    @Override
-                    public void onPacketReceiving(PacketEvent event) {
-                        PacketContainer container = event.getPacket();
-                        int targetId = container.getIntegers().read(0);
-
-                        if (npcMap.containsKey(targetId)) {
-                            NPC npc = npcMap.get(targetId);
-
-                            EnumWrappers.Hand usedHand;
-                            EnumWrappers.EntityUseAction action;
-
-                            if (AbstractModifier.MINECRAFT_VERSION >= 17) {
-                                WrappedEnumEntityUseAction useAction = container.getEnumEntityUseActions().read(0);
-                                action = useAction.getAction();
-                                usedHand = action == EnumWrappers.EntityUseAction.ATTACK
-                                        ? EnumWrappers.Hand.MAIN_HAND
-                                        : useAction.getHand();
-                            } else {
-                                action = container.getEntityUseActions().read(0);
-                                usedHand = action == EnumWrappers.EntityUseAction.ATTACK
-                                        ? EnumWrappers.Hand.MAIN_HAND
-                                        : container.getHands().optionRead(0).orElse(EnumWrappers.Hand.MAIN_HAND);
-                            }
-
-                            Bukkit.getScheduler().runTask(
-                                    NPCFactoryPlugin.getInstance(),
-                                    () -> Bukkit.getPluginManager().callEvent(
-                                            new PlayerNPCInteractEvent(
-                                                    event.getPlayer(),
-                                                    npc,
-                                                    action,
-                                                    usedHand))
-                            );
-                        }
+        this.interactListener = new PacketAdapter(NPCFactoryPlugin.getInstance(), PacketType.Play.Client.USE_ENTITY) {
+            @Override
+            public void onPacketReceiving(PacketEvent event) {
+                PacketContainer container = event.getPacket();
+                int targetId = container.getIntegers().read(0);
+                if (!EntityIdAllocator.isReserved(targetId) && !hasCustomIds) {
+                    return;
+                }
+
+                NPC npc = npcRegistry.get(targetId);
+                if (npc != null && hasInteractListeners()) {
+                    EnumWrappers.Hand usedHand;
+                    EnumWrappers.EntityUseAction action;
+
+                    if (AbstractModifier.MINECRAFT_VERSION >= 17) {
+                        WrappedEnumEntityUseAction useAction = container.getEnumEntityUseActions().read(0);
+                        action = useAction.getAction();
+                        usedHand = action == EnumWrappers.EntityUseAction.ATTACK
+                                ? EnumWrappers.Hand.MAIN_HAND
+                                : useAction.getHand();
+                    } else {
+                        action = container.getEntityUseActions().read(0);
+                        usedHand = action == EnumWrappers.EntityUseAction.ATTACK
+                                ? EnumWrappers.Hand.MAIN_HAND
+                                : container.getHands().optionRead(0).orElse(EnumWrappers.Hand.MAIN_HAND);
                     }
-                });
+
+                    if (!interactionLimiter.tryAcquire(event.getPlayer().getUniqueId(), targetId, action, usedHand,
+                            timingWheel.getCurrentTick())) {
+                        return;
+                    }
+                    dispatchInteraction(event.getPlayer(), npc, action, usedHand);
+                }
+            }
+        };
+        ProtocolLibrary.getProtocolManager().addPacketListener(this.interactListener);
+    }
+
+    private boolean hasInteractListeners() {
+        return NPCEventDispatcher.hasListeners(this.interactionDelivery == InteractionDelivery.ASYNC
+                ? AsyncPlayerNPCInteractEvent.getHandlerList()
+                : PlayerNPCInteractEvent.getHandlerList());
+    }
+
+    private void dispatchInteraction(@NotNull Player player,
+                                     @NotNull NPC npc,
+                                     @NotNull EnumWrappers.EntityUseAction action,
+                                     @NotNull EnumWrappers.Hand hand) {
+        PlayerSerialExecutor interactionExecutor = this.interactionExecutor;
+        if (this.interactionDelivery == InteractionDelivery.ASYNC && interactionExecutor != null) {
+            AsyncPlayerNPCInteractEvent event = new AsyncPlayerNPCInteractEvent(player, npc, action, hand);
+            interactionExecutor.execute(player.getUniqueId(), () -> Bukkit.getPluginManager().callEvent(event));
+        } else {
+            this.eventDispatcher.dispatch(new PlayerNPCInteractEvent(player, npc, action, hand));
+        }
+    }
+
+    /**
+     * Sets how interactions with npcs are delivered. {@link InteractionDelivery#SYNC} calls a
+     * {@link PlayerNPCInteractEvent} on the main thread, {@link InteractionDelivery#ASYNC} calls an
+     * {@link AsyncPlayerNPCInteractEvent} right away on a dedicated, fixed size thread pool, keeping the
+     * order of the interactions of each player.
+     *
+     * @param interactionDelivery the delivery of interactions
+     */
+    public synchronized void setInteractionDelivery(@NotNull InteractionDelivery interactionDelivery) {
+        if (interactionDelivery == InteractionDelivery.ASYNC && this.interactionExecutor == null) {
+            this.interactionPool = Executors.newFixedThreadPool(INTERACTION_THREADS, new ThreadFactoryBuilder()
+                    .setNameFormat("NPC Interaction Thread #%d")
+                    .setDaemon(true)
+                    .build());
+            this.interactionExecutor = new PlayerSerialExecutor(this.interactionPool);
+        }
+        this.interactionDelivery = interactionDelivery;
     }
 
     private void startNPCTick() {
-        Bukkit.getScheduler().runTaskTimerAsynchronously(NPCFactoryPlugin.getInstance(), () -> {
-            for (Player player : ImmutableList.copyOf(Bukkit.getOnlinePlayers())) {
-                for (NPC npc : this.npcMap.values()) {
-                    Location npcLoc = npc.getLocation();
-                    Location playerLoc = player.getLocation();
-                    if (!npcLoc.getWorld().equals(playerLoc.getWorld())) {
-                        if (npc.isShownFor(player)) {
-                            npc.hide(player, NPCFactoryPlugin.getInstance(), PlayerNPCHideEvent.Reason.SPAWN_DISTANCE);
-                        }
-                        continue;
-                    } else if (!npcLoc.getWorld().isChunkLoaded(npcLoc.getBlockX() >> 4, npcLoc.getBlockZ() >> 4)) {
-                        if (npc.isShownFor(player)) {
-                            npc.hide(player, NPCFactoryPlugin.getInstance(), PlayerNPCHideEvent.Reason.UNLOADED_CHUNK);
-                        }
-                        continue;
+        this.npcTickTask = Bukkit.getScheduler().runTaskTimerAsynchronously(NPCFactoryPlugin.getInstance(), () -> {
+            List<Player> onlinePlayers = ImmutableList.copyOf(Bukkit.getOnlinePlayers());
+            if (this.tickRuns.incrementAndGet() % FULL_REFRESH_INTERVAL == 0) {
+                onlinePlayers.forEach(this::markDirty);
+            }
+
+            Map<UUID, Player> players = new HashMap<>();
+            onlinePlayers.forEach(player -> players.put(player.getUniqueId(), player));
+
+            ForkJoinPool pool = this.evaluationPool;
+            int batchSize = pool == null ? 1 : pool.getParallelism() * EVALUATION_BATCH_FACTOR;
+
+            Map<Player, List<NPC>> shownNPCs = new HashMap<>();
+            Map<Player, List<NPC>> hiddenNPCs = new HashMap<>();
+            long deadline = System.nanoTime() + this.tickBudgetNanos;
+
+            // decisions left over by the previous run were made first, so they are applied first
+            this.applyDecisions(deadline, shownNPCs, hiddenNPCs);
+
+            List<Player> batch = new ArrayList<>(batchSize);
+            while (this.pendingDecisions.isEmpty() && System.nanoTime() < deadline) {
+                batch.clear();
+                while (batch.size() < batchSize) {
+                    UUID uuid = this.dirtyQueue.poll();
+                    if (uuid == null) {
+                        break;
                     }
 
-                    double distance = npcLoc.distanceSquared(playerLoc);
-                    boolean inRange = distance <= this.spawnDistance;
+                    Player player = players.get(uuid);
+                    if (this.dirtyPlayers.remove(uuid) != null && player != null) {
+                        batch.add(player);
+                    }
+                }
 
-                    if ((npc.isExcluded(player) || !inRange) && npc.isShownFor(player)) {
-                        npc.hide(player, NPCFactoryPlugin.getInstance(), PlayerNPCHideEvent.Reason.SPAWN_DISTANCE);
-                    } else if ((!npc.isExcluded(player) && inRange) && !npc.isShownFor(player)) {
-                        npc.show(player, NPCFactoryPlugin.getInstance(), this.tabListRemoveTicks);
+                if (batch.isEmpty()) {
+                    if (this.dirtyQueue.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                this.pendingDecisions.addAll(evaluate(pool, batch, this::evaluateVisibility));
+                this.applyDecisions(deadline, shownNPCs, hiddenNPCs);
+            }
+
+            // players which moved again while waiting are collected once the queue is done
+            if (this.lookAtQueue.isEmpty()) {
+                for (Player player : onlinePlayers) {
+                    if (this.movedPlayers.remove(player.getUniqueId())) {
+                        this.lookAtQueue.add(player);
+                    }
+                }
+            }
+            while (this.pendingDecisions.isEmpty() && System.nanoTime() < deadline) {
+                batch.clear();
+                while (batch.size() < batchSize) {
+                    Player player = this.lookAtQueue.poll();
+                    if (player == null) {
+                        break;
                     }
 
-                    if (npc.isShownFor(player) && npc.isLookAtPlayers() && distance <= this.actionDistance) {
-                        npc.rotation().queueLookAt(playerLoc).send(player);
+                    if (player.isOnline()) {
+                        batch.add(player);
                     }
                 }
+
+                if (batch.isEmpty()) {
+                    break;
+                }
+                this.pendingDecisions.addAll(evaluate(pool, batch, this::evaluateLookAt));
+                this.applyDecisions(deadline, shownNPCs, hiddenNPCs);
+            }
+
+            shownNPCs.forEach(this::addToPlayerList);
+            hiddenNPCs.forEach((player, npcs) -> {
+                this.packetBatcher.queue(player,
+                        VisibilityModifier.createPlayerListChange(npcs, EnumWrappers.PlayerInfoAction.REMOVE_PLAYER));
+                this.packetBatcher.queue(player, VisibilityModifier.createDestroy(npcs));
+            });
+        }, 20, TICK_PERIOD);
+    }
+
+    /**
+     * Applies the pending decisions in order until the deadline passed, at least one decision is
+     * applied per call. Decisions which are left are applied by the next tick run.
+     *
+     * @param deadline   The value of {@link System#nanoTime()} at which no more decisions are applied.
+     * @param shownNPCs  The npcs which were shown by the applied decisions, by player.
+     * @param hiddenNPCs The npcs which were hidden by the applied decisions, by player.
+     */
+    private void applyDecisions(long deadline,
+                                @NotNull Map<Player, List<NPC>> shownNPCs,
+                                @NotNull Map<Player, List<NPC>> hiddenNPCs) {
+        VisibilityDecision decision;
+        do {
+            decision = this.pendingDecisions.poll();
+            if (decision == null) {
+                return;
+            }
+
+            // decisions carried over from the previous run may target players which left meanwhile
+            if (decision.getPlayer().isOnline()
+                    && decision.apply(this.npcRegistry, NPCFactoryPlugin.getInstance(), this.tabListRemoveTicks, this.packetBatcher)) {
+                (decision.getType() == VisibilityDecision.Type.SHOW ? shownNPCs : hiddenNPCs)
+                        .computeIfAbsent(decision.getPlayer(), player -> new ArrayList<>())
+                        .add(decision.getNpc());
+            }
+        } while (System.nanoTime() < deadline);
+    }
+
+    /**
+     * Adds npcs which were just shown to a player to its player list with a single packet, and
+     * schedules their removal with a single packet as well.
+     *
+     * @param player The player the npcs were shown to.
+     * @param npcs   The shown npcs.
+     */
+    private void addToPlayerList(@NotNull Player player, @NotNull List<NPC> npcs) {
+        this.packetBatcher.queue(player,
+                VisibilityModifier.createPlayerListChange(npcs, EnumWrappers.PlayerInfoAction.ADD_PLAYER));
+        if (this.tabListRemoveTicks < 0) {
+            return;
+        }
+
+        this.timingWheel.schedule(() -> {
+            // npcs which were hidden in the meantime already left the player list, npcs which are
+            // about to be spawned again need to keep their entry until the skin is loaded
+            List<NPC> removedNPCs = new ArrayList<>(npcs.size());
+            for (NPC npc : npcs) {
+                if (npc.isShownFor(player) && !npc.isSpawnPending(player)) {
+                    removedNPCs.add(npc);
+                }
             }
-        }, 20, 2);
+
+            if (!removedNPCs.isEmpty() && player.isOnline()) {
+                this.packetBatcher.queue(player,
+                        VisibilityModifier.createPlayerListChange(removedNPCs, EnumWrappers.PlayerInfoAction.REMOVE_PLAYER));
+            }
+        }, NPC.SPAWN_DELAY_TICKS + this.tabListRemoveTicks);
+    }
+
+    /**
+     * Evaluates the given players, in parallel if a pool is given. The returned decisions are in the
+     * order of the given players.
+     *
+     * @param pool      The pool to evaluate the players in or null to evaluate on the calling thread.
+     * @param players   The players to evaluate.
+     * @param evaluator The evaluation of a single player.
+     * @return the decisions made for all players
+     */
+    @NotNull
+    static List<VisibilityDecision> evaluate(ForkJoinPool pool,
+                                             @NotNull List<Player> players,
+                                             @NotNull Function<Player, List<VisibilityDecision>> evaluator) {
+        if (pool == null || players.size() < 2) {
+            List<VisibilityDecision> decisions = new ArrayList<>();
+            players.forEach(player -> decisions.addAll(evaluator.apply(player)));
+            return decisions;
+        }
+
+        // streams started from a task of the pool are executed in that pool
+        return pool.submit(() -> players.parallelStream()
+                .map(evaluator)
+                .flatMap(List::stream)
+                .collect(Collectors.toList())).join();
+    }
+
+    @NotNull
+    private List<VisibilityDecision> evaluateVisibility(@NotNull Player player) {
+        List<VisibilityDecision> decisions = new ArrayList<>();
+        Location playerLoc = player.getLocation();
+
+        this.npcIndex.forEachNear(playerLoc, this.spawnRadius, npc -> {
+            if (!npc.isShownFor(player) && this.canSee(npc, player, playerLoc)) {
+                decisions.add(VisibilityDecision.show(npc, player));
+            }
+        });
+
+        // npcs which are out of the range of the index still have to be hidden
+        for (NPC npc : this.getVisibleNPCs(player)) {
+            PlayerNPCHideEvent.Reason reason = this.getHideReason(npc, player, playerLoc);
+            if (reason != null) {
+                decisions.add(VisibilityDecision.hide(npc, player, reason));
+            }
+        }
+        return decisions;
+    }
+
+    @NotNull
+    private List<VisibilityDecision> evaluateLookAt(@NotNull Player player) {
+        List<VisibilityDecision> decisions = new ArrayList<>();
+        Location playerLoc = player.getLocation();
+
+        this.npcIndex.forEachNear(playerLoc, this.actionRadius, npc -> {
+            if (npc.isLookAtPlayers() && npc.isShownFor(player)
+                    && npc.getLocation().distanceSquared(playerLoc) <= this.actionDistance) {
+                decisions.add(VisibilityDecision.lookAt(npc, player,
+                        RotationModifier.fastLookAtAngles(npc.getLocation(), playerLoc)));
+            }
+        });
+        return decisions;
+    }
+
+    private boolean canSee(@NotNull NPC npc, @NotNull Player player, @NotNull Location playerLoc) {
+        Location npcLoc = npc.getLocation();
+        return npcLoc.getWorld().isChunkLoaded(npcLoc.getBlockX() >> 4, npcLoc.getBlockZ() >> 4)
+                && !npc.isExcluded(player)
+                && npcLoc.distanceSquared(playerLoc) <= this.spawnDistance;
+    }
+
+    private PlayerNPCHideEvent.Reason getHideReason(@NotNull NPC npc, @NotNull Player player, @NotNull Location playerLoc) {
+        Location npcLoc = npc.getLocation();
+        if (!npcLoc.getWorld().equals(playerLoc.getWorld())) {
+            return PlayerNPCHideEvent.Reason.SPAWN_DISTANCE;
+        } else if (!npcLoc.getWorld().isChunkLoaded(npcLoc.getBlockX() >> 4, npcLoc.getBlockZ() >> 4)) {
+            return PlayerNPCHideEvent.Reason.UNLOADED_CHUNK;
+        } else if (npc.isExcluded(player) || npcLoc.distanceSquared(playerLoc) > this.spawnDistance) {
+            return PlayerNPCHideEvent.Reason.SPAWN_DISTANCE;
+        }
+        return null;
+    }
+
+    /**
+     * Sets the amount of threads evaluating the visibility of npcs. A parallelism of one or less
+     * evaluates on the tick thread, every value above splits the evaluation by player across a
+     * {@link ForkJoinPool}. Decisions are always applied in order on the tick thread.
+     *
+     * @param parallelism the amount of evaluating threads
+     */
+    public void setEvaluationParallelism(int parallelism) {
+        ForkJoinPool previous = this.evaluationPool;
+        this.evaluationPool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Marks a player to be re-evaluated by the next visibility tick.
+     *
+     * @param player the player to re-evaluate
+     */
+    private void markDirty(@NotNull Player player) {
+        if (this.dirtyPlayers.putIfAbsent(player.getUniqueId(), this.tickRuns.get()) == null) {
+            this.dirtyQueue.add(player.getUniqueId());
+        }
+        this.movedPlayers.add(player.getUniqueId());
+    }
+
+    /**
+     * Get how far the visibility evaluation is behind, which is the time the longest waiting player
+     * is already waiting to be re-evaluated.
+     *
+     * @return the worst staleness of the npc visibility in server ticks
+     */
+    public long getVisibilityLag() {
+        long runs = this.tickRuns.get();
+        for (UUID uuid : this.dirtyQueue) {
+            Long markedAt = this.dirtyPlayers.get(uuid);
+            if (markedAt != null) {
+                return (runs - markedAt) * TICK_PERIOD;
+            }
+        }
+        return 0;
     }
 
     @Override
-    public int getFreeEntityId() {
-        int id;
+    public @NotNull TimingWheel getTimingWheel() {
+        return this.timingWheel;
+    }
 
-        do {
-            id = RANDOM.nextInt(Integer.MAX_VALUE);
-        } while (this.npcMap.containsKey(id));
+    @Override
+    public @NotNull PacketBatcher getPacketBatcher() {
+        return this.packetBatcher;
+    }
 
-        return id;
+    @Override
+    public @NotNull NPCEventDispatcher getEventDispatcher() {
+        return this.eventDispatcher;
+    }
+
+    @Override
+    public int getFreeEntityId() {
+        return this.entityIdAllocator.allocate();
     }
 
     @Override
     public void handleNPC(@NotNull NPC npc) {
-        this.npcMap.put(npc.getEntityId(), npc);
+        // npcs without this handler never report their shows and hides, which the visible index relies on
+        Preconditions.checkArgument(npc.getHandler() == this, "The npc has to be built with this handler!");
+        if (!EntityIdAllocator.isReserved(npc.getEntityId())) {
+            this.hasCustomIds = true;
+        }
+        this.npcRegistry.put(npc);
+        this.npcIndex.add(npc);
+        npc.getLocation().getWorld().getPlayers().forEach(this::markDirty);
     }
 
     @Override
     public Optional<NPC> getNpc(int entityId) {
-        return Optional.ofNullable(this.npcMap.get(entityId));
+        return Optional.ofNullable(this.npcRegistry.get(entityId));
     }
 
     @Override
     public void removeNPC(int entityId) {
-        this.getNpc(entityId).ifPresent(npc -> {
-            this.npcMap.remove(entityId);
-            npc.getShowedPlayers()
-                    .forEach(uuid -> npc.hide(Bukkit.getPlayer(uuid), NPCFactoryPlugin.getInstance(), PlayerNPCHideEvent.Reason.REMOVED));
+        this.removeNPCs(entityId);
+    }
+
+    @Override
+    public void removeNPCs(int @NotNull ... entityIds) {
+        // shows applied by the tick check the registration under the lock of the registry, so the
+        // players collected here include every player the npcs are spawned for
+        List<NPC> removedNPCs = this.npcRegistry.removeAll(entityIds);
+        Map<UUID, List<NPC>> hiddenNPCs = new HashMap<>();
+        for (NPC npc : removedNPCs) {
+            this.npcIndex.remove(npc);
+            for (UUID uuid : npc.getShowedPlayers()) {
+                hiddenNPCs.computeIfAbsent(uuid, key -> new ArrayList<>()).add(npc);
+            }
+        }
+
+        hiddenNPCs.forEach((uuid, npcs) -> {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player != null) {
+                this.hideNPCs(player, npcs, PlayerNPCHideEvent.Reason.REMOVED);
+            }
         });
+
+        // the ids are released only after the clients destroyed the npcs
+        removedNPCs.forEach(npc -> this.entityIdAllocator.release(npc.getEntityId()));
+    }
+
+    @Override
+    public void hideNPCs(@NotNull Player player, @NotNull Collection<NPC> npcs, @NotNull PlayerNPCHideEvent.Reason reason) {
+        List<NPC> hiddenNPCs = new ArrayList<>(npcs.size());
+        for (NPC npc : npcs) {
+            if (npc.isShownFor(player)) {
+                npc.markHidden(player, NPCFactoryPlugin.getInstance(), reason);
+                hiddenNPCs.add(npc);
+            }
+        }
+
+        if (!hiddenNPCs.isEmpty()) {
+            this.packetBatcher.queue(player,
+                    VisibilityModifier.createPlayerListChange(hiddenNPCs, EnumWrappers.PlayerInfoAction.REMOVE_PLAYER));
+            this.packetBatcher.queue(player, VisibilityModifier.createDestroy(hiddenNPCs));
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        HandlerList.unregisterAll(this);
+        ProtocolLibrary.getProtocolManager().removePacketListener(this.interactListener);
+        this.npcTickTask.cancel();
+        this.timingWheelTask.cancel();
+
+        this.removeNPCs(Arrays.stream(this.npcRegistry.values()).mapToInt(NPC::getEntityId).toArray());
+        // the tick calling the hide events and flushing the destroys of the removed npcs is cancelled already
+        this.eventDispatcher.drain();
+        this.packetBatcher.flush();
+
+        ForkJoinPool pool = this.evaluationPool;
+        this.evaluationPool = null;
+        if (pool != null) {
+            pool.shutdown();
+        }
+        if (this.interactionPool != null) {
+            this.interactionPool.shutdown();
+        }
     }
 
     @Override
     public @Unmodifiable Collection<NPC> getNPCs() {
-        return Collections.unmodifiableCollection(this.npcMap.values());
+        return Collections.unmodifiableList(Arrays.asList(this.npcRegistry.values()));
+    }
+
+    @Override
+    public @Unmodifiable Collection<NPC> getVisibleNPCs(@NotNull Player player) {
+        Set<NPC> npcs = this.visibleNPCs.get(player.getUniqueId());
+        return npcs == null ? Collections.emptySet() : Collections.unmodifiableSet(npcs);
+    }
+
+    @Override
+    public void handleShow(@NotNull NPC npc, @NotNull Player player) {
+        // added inside the atomic section, a concurrent hide could otherwise drop the set it is added to
+        this.visibleNPCs.compute(player.getUniqueId(), (uuid, npcs) -> {
+            npcs = npcs == null ? ConcurrentHashMap.newKeySet() : npcs;
+            npcs.add(npc);
+            return npcs;
+        });
+    }
+
+    @Override
+    public void handleSpawn(@NotNull NPC npc, @NotNull Player player) {
+        // players standing still would not be looked at before their next full refresh
+        if (npc.isLookAtPlayers()) {
+            this.movedPlayers.add(player.getUniqueId());
+        }
+    }
+
+    @Override
+    public void handleHide(@NotNull NPC npc, @NotNull Player player) {
+        this.visibleNPCs.computeIfPresent(player.getUniqueId(), (uuid, npcs) -> {
+            npcs.remove(npc);
+            return npcs.isEmpty() ? null : npcs;
+        });
+    }
+
+    @EventHandler
+    public void handleJoin(PlayerJoinEvent event) {
+        this.markDirty(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void handleMove(PlayerMoveEvent event) {
+        Location from = event.getFrom();
+        Location to = event.getTo();
+
+        if (from.getBlockX() != to.getBlockX()
+                || from.getBlockY() != to.getBlockY()
+                || from.getBlockZ() != to.getBlockZ()) {
+            this.markDirty(event.getPlayer());
+        } else if (from.getX() != to.getX() || from.getY() != to.getY() || from.getZ() != to.getZ()) {
+            this.movedPlayers.add(event.getPlayer().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void handleTeleport(PlayerTeleportEvent event) {
+        this.markDirty(event.getPlayer());
+    }
+
+    @EventHandler
+    public void handleWorldChange(PlayerChangedWorldEvent event) {
+        this.markDirty(event.getPlayer());
     }
 
     @EventHandler
     public void handleRespawn(PlayerRespawnEvent event) {
         Player player = event.getPlayer();
+        this.markDirty(player);
 
-        this.npcMap.values().stream()
-                .filter(npc -> npc.isShownFor(player))
-                .forEach(npc -> npc.hide(player, NPCFactoryPlugin.getInstance(), PlayerNPCHideEvent.Reason.RESPAWNED));
+        this.hideNPCs(player, new ArrayList<>(this.getVisibleNPCs(player)), PlayerNPCHideEvent.Reason.RESPAWNED);
     }
 
-    @EventHandler
+    // runs before the session of the player is released on monitor priority
+    @EventHandler(priority = EventPriority.HIGHEST)
     public void handleQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
+        this.dirtyPlayers.remove(player.getUniqueId());
+        this.movedPlayers.remove(player.getUniqueId());
+        this.interactionLimiter.forget(player.getUniqueId());
+        PlayerSerialExecutor interactionExecutor = this.interactionExecutor;
+        if (interactionExecutor != null) {
+            interactionExecutor.forget(player.getUniqueId());
+        }
 
-        this.npcMap.values().stream()
-                .filter(npc -> npc.isShownFor(player) || npc.isExcluded(player))
-                .forEach(npc -> {
-                    npc.getShowedPlayers().remove(player.getUniqueId());
-                    npc.getExcludedPlayers().remove(player.getUniqueId());
-                });
+        // exclusions of other npcs are cleared by session index once the session is released
+        Set<NPC> visibleNPCs = this.visibleNPCs.remove(player.getUniqueId());
+        if (visibleNPCs != null) {
+            for (NPC npc : visibleNPCs) {
+                npc.forget(player);
+            }
+        }
     }
 
     @EventHandler
     public void handleSneak(PlayerToggleSneakEvent event) {
         Player player = event.getPlayer();
 
-        this.npcMap.values().stream()
-                .filter(npc -> npc.isImitatePlayers() && npc.isShownFor(player))
-                .filter(npc -> npc.getLocation().getWorld().equals(player.getWorld())
-                        && npc.getLocation().distanceSquared(player.getLocation()) <= this.actionDistance)
-                .forEach(npc -> npc.metadata()
-                        .queue(MetadataModifier.EntityMetadata.SNEAKING, event.isSneaking()).send(player));
+        Location playerLoc = player.getLocation();
+        for (NPC npc : this.getVisibleNPCs(player)) {
+            if (npc.isImitatePlayers() && this.isInActionRange(npc, playerLoc)) {
+                // only imitated for this player, players the npc is spawned for later see it standing
+                npc.metadata()
+                        .viewerSpecific()
+                        .queue(MetadataModifier.EntityMetadata.SNEAKING, event.isSneaking())
+                        .send(player);
+            }
+        }
     }
 
     @EventHandler
@@ -213,13 +728,32 @@ public class DefaultNPCHandler implements NPCHandler {
 
         if (event.getAction() == Action.LEFT_CLICK_AIR
                 || event.getAction() == Action.LEFT_CLICK_BLOCK) {
-            this.npcMap.values().stream()
-                    .filter(npc -> npc.isImitatePlayers() && npc.isShownFor(player))
-                    .filter(npc -> npc.getLocation().getWorld().equals(player.getWorld())
-                            && npc.getLocation().distanceSquared(player.getLocation()) <= this.actionDistance)
-                    .forEach(npc -> npc.animation().queue(AnimationModifier.EntityAnimation.SWING_MAIN_ARM)
-                            .send(player));
+            Location playerLoc = player.getLocation();
+            for (NPC npc : this.getVisibleNPCs(player)) {
+                if (npc.isImitatePlayers() && this.isInActionRange(npc, playerLoc)) {
+                    npc.animation().queue(AnimationModifier.EntityAnimation.SWING_MAIN_ARM).send(player);
+                }
+            }
         }
     }
 
+    private boolean isInActionRange(@NotNull NPC npc, @NotNull Location playerLoc) {
+        return npc.getLocation().getWorld().equals(playerLoc.getWorld())
+                && npc.getLocation().distanceSquared(playerLoc) <= this.actionDistance;
+    }
+
+    /**
+     * The ways interactions with npcs can be delivered to listeners.
+     */
+    public enum InteractionDelivery {
+        /**
+         * Interactions are delivered as {@link PlayerNPCInteractEvent} on the main thread.
+         */
+        SYNC,
+        /**
+         * Interactions are delivered as {@link AsyncPlayerNPCInteractEvent} off the main thread.
+         */
+        ASYNC
+    }
+
 }
@@ -0,0 +1,104 @@
+package dev.qrowned.npc.spigot.handler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Allocates entity ids for npcs from a reserved range at the top of the int range. The server
+ * counts its own entity ids up from zero, so it never reaches the reserved range. Released ids are
+ * recycled through a lock-free stack of primitive ints, which links every free id to the next one in
+ * an array indexed by the id, so releasing an id neither locks nor allocates.
+ */
+public class EntityIdAllocator {
+
+    /**
+     * The first entity id of the reserved range, the range ends at {@link Integer#MAX_VALUE}.
+     */
+    public static final int FIRST_ID = Integer.MAX_VALUE - (1 << 24) + 1;
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    private final AtomicInteger nextId = new AtomicInteger(FIRST_ID);
+    /**
+     * The links of the free ids, allocated in chunks once the first id of a chunk was handed out. Each
+     * link holds the offset of the next free id plus one, zero ends the stack.
+     */
+    private final AtomicReferenceArray<AtomicIntegerArray> links = new AtomicReferenceArray<>((1 << 24) >>> CHUNK_BITS);
+    /**
+     * The top of the free stack, a version counter in the upper and the offset of the top id plus one
+     * in the lower half. The version prevents a stale pop from succeeding after the same id was pushed
+     * again.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Get if the given entity id is in the reserved range.
+     *
+     * @param entityId The entity id to check.
+     * @return if the entity id is in the reserved range
+     */
+    public static boolean isReserved(int entityId) {
+        return entityId >= FIRST_ID;
+    }
+
+    /**
+     * Allocates a free entity id.
+     *
+     * @return the allocated entity id
+     * @throws IllegalStateException When every id of the reserved range is in use.
+     */
+    public int allocate() {
+        long head;
+        while ((int) (head = this.head.get()) != 0) {
+            int offset = (int) head - 1;
+            int next = this.links.get(offset >>> CHUNK_BITS).get(offset & CHUNK_MASK);
+            if (this.head.compareAndSet(head, nextHead(head, next))) {
+                return FIRST_ID + offset;
+            }
+        }
+
+        int entityId = this.nextId.getAndIncrement();
+        if (!isReserved(entityId)) {
+            // the counter overflowed, every id is in use
+            throw new IllegalStateException("No free entity id left in the reserved range!");
+        }
+
+        int chunk = (entityId - FIRST_ID) >>> CHUNK_BITS;
+        if (this.links.get(chunk) == null) {
+            this.links.compareAndSet(chunk, null, new AtomicIntegerArray(1 << CHUNK_BITS));
+        }
+        return entityId;
+    }
+
+    /**
+     * Releases an entity id, so that it can be allocated again.
+     *
+     * @param entityId The entity id to release.
+     */
+    public void release(int entityId) {
+        if (!isReserved(entityId)) {
+            return;
+        }
+
+        int offset = entityId - FIRST_ID;
+        AtomicIntegerArray chunk = this.links.get(offset >>> CHUNK_BITS);
+        if (chunk == null) {
+            // never handed out by this allocator
+            return;
+        }
+
+        long head;
+        do {
+            head = this.head.get();
+            chunk.set(offset & CHUNK_MASK, (int) head);
+        } while (!this.head.compareAndSet(head, nextHead(head, offset + 1)));
+    }
+
+    private static long nextHead(long head, int top) {
+        return ((head >>> 32) + 1) << 32 | (top & 0xFFFFFFFFL);
+    }
+
+}
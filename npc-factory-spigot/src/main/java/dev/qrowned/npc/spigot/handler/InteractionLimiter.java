@@ -0,0 +1,171 @@
+package dev.qrowned.npc.spigot.handler;
+
+import com.comphenix.protocol.wrappers.EnumWrappers;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the interactions of every player with every npc before they are turned into events. A
+ * single click makes the client send multiple packets, e.g. an INTERACT_AT followed by an INTERACT,
+ * only the first of them within a tick passes. The remaining interactions are rate limited by a
+ * token bucket per player and npc, implemented as a generic cell rate algorithm needing a single
+ * compare and set per interaction.
+ */
+public class InteractionLimiter {
+
+    private final Map<UUID, Map<Integer, InteractionState>> states = new ConcurrentHashMap<>();
+
+    private final LongAdder duplicateDrops = new LongAdder();
+    private final LongAdder rateLimitDrops = new LongAdder();
+
+    private volatile long emissionIntervalNanos;
+    private volatile long burstToleranceNanos;
+
+    /**
+     * Creates a new limiter.
+     *
+     * @param interactionsPerSecond The interactions per second a player may do with a npc.
+     * @param burst                 The interactions a player may do at once before being limited.
+     */
+    public InteractionLimiter(double interactionsPerSecond, int burst) {
+        this.setLimit(interactionsPerSecond, burst);
+    }
+
+    /**
+     * Sets the limit of the interactions of each player with each npc.
+     *
+     * @param interactionsPerSecond The interactions per second a player may do with a npc, a value of
+     *                              zero or less disables the rate limit.
+     * @param burst                 The interactions a player may do at once before being limited.
+     */
+    public void setLimit(double interactionsPerSecond, int burst) {
+        if (interactionsPerSecond <= 0) {
+            this.emissionIntervalNanos = 0;
+            this.burstToleranceNanos = 0;
+            return;
+        }
+
+        long emissionInterval = (long) (TimeUnit.SECONDS.toNanos(1) / interactionsPerSecond);
+        this.burstToleranceNanos = emissionInterval * Math.max(burst - 1, 0);
+        this.emissionIntervalNanos = emissionInterval;
+    }
+
+    /**
+     * Checks if an interaction may be turned into an event. Safe to call from any thread.
+     *
+     * @param player   The unique id of the interacting player.
+     * @param entityId The entity id of the npc.
+     * @param action   The action of the interaction.
+     * @param hand     The hand used for the interaction.
+     * @param tick     The current server tick.
+     * @return if the interaction may pass
+     */
+    public boolean tryAcquire(@NotNull UUID player,
+                              int entityId,
+                              @NotNull EnumWrappers.EntityUseAction action,
+                              @NotNull EnumWrappers.Hand hand,
+                              long tick) {
+        InteractionState state = this.states.computeIfAbsent(player, uuid -> new ConcurrentHashMap<>())
+                .computeIfAbsent(entityId, id -> new InteractionState());
+
+        if (!state.markInteraction(action, hand, tick)) {
+            this.duplicateDrops.increment();
+            return false;
+        }
+
+        long emissionInterval = this.emissionIntervalNanos;
+        if (emissionInterval > 0 && !state.acquire(System.nanoTime(), emissionInterval, this.burstToleranceNanos)) {
+            this.rateLimitDrops.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the state of a player who left the server.
+     *
+     * @param player The unique id of the player.
+     */
+    public void forget(@NotNull UUID player) {
+        this.states.remove(player);
+    }
+
+    /**
+     * Get the amount of interactions dropped as duplicate of an interaction in the same tick.
+     *
+     * @return the amount of dropped duplicates
+     */
+    public long getDuplicateDrops() {
+        return this.duplicateDrops.sum();
+    }
+
+    /**
+     * Get the amount of interactions dropped because of exceeding the rate limit.
+     *
+     * @return the amount of rate limited interactions
+     */
+    public long getRateLimitDrops() {
+        return this.rateLimitDrops.sum();
+    }
+
+    /**
+     * The interaction state of a player with a single npc.
+     */
+    private static final class InteractionState {
+
+        /**
+         * The theoretical arrival time of the next interaction, in nanoseconds.
+         */
+        private final AtomicLong arrivalTime = new AtomicLong(Long.MIN_VALUE);
+        /**
+         * The last tick with an interaction in the upper bits, the kinds of interactions done in that
+         * tick as a bit mask in the lower four bits.
+         */
+        private final AtomicLong lastInteractions = new AtomicLong(-1);
+
+        private boolean markInteraction(@NotNull EnumWrappers.EntityUseAction action,
+                                        @NotNull EnumWrappers.Hand hand,
+                                        long tick) {
+            // interact and interact at are sent for the same click, so they count as one kind
+            int kind = (action == EnumWrappers.EntityUseAction.ATTACK ? 0 : 2)
+                    + (hand == EnumWrappers.Hand.OFF_HAND ? 1 : 0);
+            long kindBit = 1L << kind;
+
+            long current;
+            long updated;
+            do {
+                current = this.lastInteractions.get();
+                if (current >> 4 == tick) {
+                    if ((current & kindBit) != 0) {
+                        return false;
+                    }
+                    updated = current | kindBit;
+                } else {
+                    updated = (tick << 4) | kindBit;
+                }
+            } while (!this.lastInteractions.compareAndSet(current, updated));
+            return true;
+        }
+
+        private boolean acquire(long now, long emissionInterval, long burstTolerance) {
+            long current;
+            long updated;
+            do {
+                current = this.arrivalTime.get();
+                long arrivalTime = current == Long.MIN_VALUE ? now : Math.max(current, now);
+                if (arrivalTime - now > burstTolerance) {
+                    return false;
+                }
+                updated = arrivalTime + emissionInterval;
+            } while (!this.arrivalTime.compareAndSet(current, updated));
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,235 @@
+package dev.qrowned.npc.spigot.handler;
+
+import dev.qrowned.npc.api.NPC;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A registry of npcs keyed by their primitive entity id. Lookups and iteration are lock-free and do
+ * not allocate. Writes are serialized and change the open addressing table in place, only the dense
+ * array of all npcs is copied on write, once per call of {@link #removeAll(int...)} for bulk removals.
+ */
+public class NPCRegistry {
+
+    private static final int MIN_CAPACITY = 16;
+    /**
+     * Marks a slot of a removed npc. Slots are never reused until the table is rebuilt, so a key never
+     * changes once its slot was published.
+     */
+    private static final Object REMOVED = new Object();
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+    private volatile NPC[] npcs = new NPC[0];
+
+    /**
+     * Get the npc with the given entity id.
+     *
+     * @param entityId The entity id of the npc.
+     * @return the npc or null if there is no npc with the given entity id
+     */
+    public NPC get(int entityId) {
+        return this.table.get(entityId);
+    }
+
+    /**
+     * Runs a task if the given npc is registered, while no npc can be added to or removed from this
+     * registry. A npc removed by another thread is therefore either removed after the task completed, or
+     * the task does not run at all.
+     *
+     * @param npc  The npc which has to be registered.
+     * @param task The task to run.
+     * @return if the npc was registered and the task ran
+     */
+    public synchronized boolean runIfRegistered(@NotNull NPC npc, @NotNull Runnable task) {
+        if (this.get(npc.getEntityId()) != npc) {
+            return false;
+        }
+
+        task.run();
+        return true;
+    }
+
+    /**
+     * Adds a npc to this registry, replacing the npc with the same entity id.
+     *
+     * @param npc The npc to add.
+     */
+    public synchronized void put(@NotNull NPC npc) {
+        Table table = this.table;
+        int index = table.indexOf(npc.getEntityId());
+        if (index >= 0) {
+            NPC previous = (NPC) table.values.get(index);
+            table.values.set(index, npc);
+
+            NPC[] copy = this.npcs.clone();
+            for (int i = 0; i < copy.length; i++) {
+                if (copy[i] == previous) {
+                    copy[i] = npc;
+                }
+            }
+            this.npcs = copy;
+            return;
+        }
+
+        NPC[] npcs = this.npcs;
+        if ((table.usedSlots + 1) * 2 > table.values.length()) {
+            table = this.rebuild(npcs.length + 1);
+        }
+        table.insert(npc);
+
+        NPC[] copy = Arrays.copyOf(npcs, npcs.length + 1);
+        copy[npcs.length] = npc;
+        this.npcs = copy;
+    }
+
+    /**
+     * Removes the npc with the given entity id from this registry.
+     *
+     * @param entityId The entity id of the npc.
+     * @return the removed npc or null if there was no npc with the given entity id
+     */
+    public NPC remove(int entityId) {
+        List<NPC> removedNPCs = this.removeAll(entityId);
+        return removedNPCs.isEmpty() ? null : removedNPCs.get(0);
+    }
+
+    /**
+     * Removes the npcs with the given entity ids from this registry, copying the array of all npcs
+     * only once.
+     *
+     * @param entityIds The entity ids of the npcs.
+     * @return the removed npcs, in the order of the given entity ids
+     */
+    @NotNull
+    public synchronized List<NPC> removeAll(int @NotNull ... entityIds) {
+        Table table = this.table;
+        List<NPC> removedNPCs = new ArrayList<>(entityIds.length);
+        for (int entityId : entityIds) {
+            int index = table.indexOf(entityId);
+            if (index >= 0) {
+                removedNPCs.add((NPC) table.values.get(index));
+                table.values.set(index, REMOVED);
+            }
+        }
+
+        if (!removedNPCs.isEmpty()) {
+            Set<NPC> removed = Collections.newSetFromMap(new IdentityHashMap<>(removedNPCs.size()));
+            removed.addAll(removedNPCs);
+
+            NPC[] npcs = this.npcs;
+            NPC[] copy = new NPC[npcs.length - removed.size()];
+            int length = 0;
+            for (NPC npc : npcs) {
+                if (!removed.contains(npc)) {
+                    copy[length++] = npc;
+                }
+            }
+            this.npcs = copy;
+        }
+        return removedNPCs;
+    }
+
+    /**
+     * Get a snapshot of all npcs in this registry. The returned array is shared and must not be
+     * modified.
+     *
+     * @return all npcs in this registry
+     */
+    @NotNull
+    public NPC[] values() {
+        return this.npcs;
+    }
+
+    /**
+     * Replaces the table by a new one holding all current npcs, dropping the slots of removed npcs.
+     *
+     * @param size The amount of npcs the new table has to hold at least.
+     * @return the new table
+     */
+    @NotNull
+    private Table rebuild(int size) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < size * 4) {
+            capacity <<= 1;
+        }
+
+        Table table = new Table(capacity);
+        for (NPC npc : this.npcs) {
+            table.insert(npc);
+        }
+        this.table = table;
+        return table;
+    }
+
+    /**
+     * An open addressing table of the npcs with linear probing. Readers run without a lock, writers
+     * hold the lock of the registry.
+     */
+    private static final class Table {
+
+        private final int[] keys;
+        private final AtomicReferenceArray<Object> values;
+        private final int mask;
+        /**
+         * The amount of slots which were ever used, including the slots of removed npcs.
+         */
+        private int usedSlots;
+
+        private Table(int capacity) {
+            this.keys = new int[capacity];
+            this.values = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+
+        private static int hash(int key) {
+            int hash = key * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+
+        private NPC get(int key) {
+            int index = hash(key) & this.mask;
+
+            Object value;
+            while ((value = this.values.get(index)) != null) {
+                // the key was written before the value was published
+                if (value != REMOVED && this.keys[index] == key) {
+                    return (NPC) value;
+                }
+                index = (index + 1) & this.mask;
+            }
+            return null;
+        }
+
+        private int indexOf(int key) {
+            int index = hash(key) & this.mask;
+
+            Object value;
+            while ((value = this.values.get(index)) != null) {
+                if (value != REMOVED && this.keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & this.mask;
+            }
+            return -1;
+        }
+
+        private void insert(@NotNull NPC npc) {
+            int index = hash(npc.getEntityId()) & this.mask;
+            while (this.values.get(index) != null) {
+                index = (index + 1) & this.mask;
+            }
+
+            this.keys[index] = npc.getEntityId();
+            this.values.set(index, npc);
+            this.usedSlots++;
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package dev.qrowned.npc.spigot.handler;
+
+import dev.qrowned.npc.api.NPC;
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+/**
+ * A per-world grid of chunk sized cells holding the npcs located in them. Allows to only look at the
+ * npcs near a location instead of every npc handled by a handler.
+ */
+public class NPCSpatialIndex {
+
+    private final ChunkGrid<NPC> grid = new ChunkGrid<>();
+
+    /**
+     * Adds a npc to the cell of its location.
+     *
+     * @param npc The npc to add.
+     */
+    public void add(@NotNull NPC npc) {
+        Location location = npc.getLocation();
+        this.grid.add(location.getWorld().getUID(), location.getX(), location.getZ(), npc);
+    }
+
+    /**
+     * Removes a npc from the cell of its location.
+     *
+     * @param npc The npc to remove.
+     */
+    public void remove(@NotNull NPC npc) {
+        Location location = npc.getLocation();
+        this.grid.remove(location.getWorld().getUID(), location.getX(), location.getZ(), npc);
+    }
+
+    /**
+     * Passes every npc in the cells touched by the square around {@code center} to the consumer. The
+     * npcs are not filtered by their exact distance to the center.
+     *
+     * @param center   The center of the search.
+     * @param radius   The radius of the search in blocks.
+     * @param consumer The consumer accepting the npcs.
+     */
+    public void forEachNear(@NotNull Location center, double radius, @NotNull Consumer<NPC> consumer) {
+        this.grid.forEachNear(center.getWorld().getUID(), center.getX(), center.getZ(), radius, consumer);
+    }
+
+}
@@ -0,0 +1,91 @@
+package dev.qrowned.npc.spigot.handler;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs tasks on a backing executor while keeping the tasks of each player in order. The tasks of one
+ * player run one after another in the order they were submitted, the tasks of different players run
+ * in parallel.
+ */
+public class PlayerSerialExecutor {
+
+    private final Executor executor;
+    private final Map<UUID, SerialQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new executor.
+     *
+     * @param executor The executor running the tasks.
+     */
+    public PlayerSerialExecutor(@NotNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Submits a task of a player.
+     *
+     * @param player The unique id of the player.
+     * @param task   The task to run.
+     */
+    public void execute(@NotNull UUID player, @NotNull Runnable task) {
+        this.queues.computeIfAbsent(player, uuid -> new SerialQueue()).execute(task);
+    }
+
+    /**
+     * Forgets the queue of a player who left the server. Tasks which were already submitted still run.
+     *
+     * @param player The unique id of the player.
+     */
+    public void forget(@NotNull UUID player) {
+        this.queues.remove(player);
+    }
+
+    /**
+     * The queue of the tasks of a single player, which is run by at most one thread at a time.
+     */
+    private final class SerialQueue implements Runnable {
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private void execute(@NotNull Runnable task) {
+            this.tasks.add(task);
+            this.schedule();
+        }
+
+        private void schedule() {
+            if (this.scheduled.compareAndSet(false, true)) {
+                PlayerSerialExecutor.this.executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Runnable task;
+                while ((task = this.tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException exception) {
+                        exception.printStackTrace();
+                    }
+                }
+            } finally {
+                this.scheduled.set(false);
+                // a task might have been added after the queue was found empty
+                if (!this.tasks.isEmpty()) {
+                    this.schedule();
+                }
+            }
+        }
+    }
+
+}
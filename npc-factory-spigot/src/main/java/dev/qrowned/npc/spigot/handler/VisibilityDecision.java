@@ -0,0 +1,88 @@
+package dev.qrowned.npc.spigot.handler;
+
+import dev.qrowned.npc.api.NPC;
+import dev.qrowned.npc.api.event.PlayerNPCHideEvent;
+import dev.qrowned.npc.api.modifier.PacketBatcher;
+import dev.qrowned.npc.api.modifier.RotationModifier;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A change of the visibility or rotation of a npc for a player. Decisions are computed by the npc
+ * tick, possibly on multiple threads, and applied afterwards in one ordered step.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+class VisibilityDecision {
+
+    private final Type type;
+    private final NPC npc;
+    private final Player player;
+    private final PlayerNPCHideEvent.Reason reason;
+    private final int angles;
+
+    @NotNull
+    static VisibilityDecision show(@NotNull NPC npc, @NotNull Player player) {
+        return new VisibilityDecision(Type.SHOW, npc, player, null, 0);
+    }
+
+    @NotNull
+    static VisibilityDecision hide(@NotNull NPC npc, @NotNull Player player, @NotNull PlayerNPCHideEvent.Reason reason) {
+        return new VisibilityDecision(Type.HIDE, npc, player, reason, 0);
+    }
+
+    @NotNull
+    static VisibilityDecision lookAt(@NotNull NPC npc, @NotNull Player player, int angles) {
+        return new VisibilityDecision(Type.LOOK_AT, npc, player, null, angles);
+    }
+
+    /**
+     * Applies this decision. The state of the npc is checked again, as it might have changed since
+     * this decision was made. Shows and hides leave the player list changes and the destruction to the
+     * caller, so that they can be batched across npcs.
+     *
+     * @param registry           The registry the npc has to be registered in to be shown.
+     * @param plugin             The plugin requesting the change.
+     * @param tabListRemoveTicks The ticks before removing a shown npc from the player list.
+     * @param batcher            The batcher collecting the rotation packets.
+     * @return if the npc was shown or hidden, requiring a change of the player list
+     */
+    boolean apply(@NotNull NPCRegistry registry, @NotNull Plugin plugin, long tabListRemoveTicks, @NotNull PacketBatcher batcher) {
+        switch (this.type) {
+            case SHOW:
+                if (!this.npc.isShownFor(this.player)) {
+                    // a npc removed after this decision was made must not be spawned with its released id
+                    registry.runIfRegistered(this.npc, () -> this.npc.show(this.player, plugin, tabListRemoveTicks, false));
+                    // players which left in the meantime are not shown anything
+                    return this.npc.isShownFor(this.player);
+                }
+                break;
+            case HIDE:
+                if (this.npc.isShownFor(this.player)) {
+                    this.npc.markHidden(this.player, plugin, this.reason);
+                    return true;
+                }
+                break;
+            case LOOK_AT:
+                // only send rotations the player does not know yet
+                if (this.npc.isShownFor(this.player) && this.npc.updateSentRotation(this.player, this.angles)) {
+                    this.npc.rotation()
+                            .queueRotateAngles(RotationModifier.yawAngle(this.angles), RotationModifier.pitchAngle(this.angles))
+                            .send(batcher, this.player);
+                }
+                break;
+        }
+        return false;
+    }
+
+    enum Type {
+        SHOW,
+        HIDE,
+        LOOK_AT
+    }
+
+}
@@ -0,0 +1,80 @@
+package dev.qrowned.npc.spigot.handler;
+
+import dev.qrowned.npc.api.NPC;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NPCRegistryTest {
+
+    private NPCRegistry registry;
+
+    private static NPC mockNPC(int entityId) {
+        NPC npc = mock(NPC.class);
+        when(npc.getEntityId()).thenReturn(entityId);
+        return npc;
+    }
+
+    @BeforeEach
+    void setUp() {
+        this.registry = new NPCRegistry();
+    }
+
+    @Test
+    void findsPutNpcs() {
+        NPC first = mockNPC(EntityIdAllocator.FIRST_ID);
+        NPC second = mockNPC(-5);
+        this.registry.put(first);
+        this.registry.put(second);
+
+        assertSame(first, this.registry.get(EntityIdAllocator.FIRST_ID));
+        assertSame(second, this.registry.get(-5));
+        assertNull(this.registry.get(0));
+        assertArrayEquals(new NPC[]{first, second}, this.registry.values());
+    }
+
+    @Test
+    void replacesNpcsWithTheSameId() {
+        NPC first = mockNPC(1);
+        NPC second = mockNPC(1);
+        this.registry.put(first);
+        this.registry.put(second);
+
+        assertSame(second, this.registry.get(1));
+        assertArrayEquals(new NPC[]{second}, this.registry.values());
+    }
+
+    @Test
+    void removesNpcsInBulk() {
+        List<NPC> npcs = IntStream.range(0, 1000).mapToObj(NPCRegistryTest::mockNPC).toList();
+        npcs.forEach(this.registry::put);
+
+        List<NPC> removed = this.registry.removeAll(IntStream.range(0, 1000).filter(id -> id % 2 == 0).toArray());
+        assertEquals(500, removed.size());
+        assertEquals(500, this.registry.values().length);
+        for (NPC npc : npcs) {
+            assertEquals(npc.getEntityId() % 2 == 0 ? null : npc, this.registry.get(npc.getEntityId()));
+        }
+        assertTrue(this.registry.removeAll(0, 2).isEmpty());
+    }
+
+    @Test
+    void reusesIdsOfRemovedNpcs() {
+        // enough cycles to fill the table with removed slots several times
+        for (int i = 0; i < 10_000; i++) {
+            NPC npc = mockNPC(i % 3);
+            this.registry.put(npc);
+            assertSame(npc, this.registry.get(i % 3));
+            assertSame(npc, this.registry.remove(i % 3));
+            assertNull(this.registry.get(i % 3));
+        }
+        assertEquals(0, this.registry.values().length);
+    }
+
+}
@@ -0,0 +1,93 @@
+package dev.qrowned.npc.spigot.handler;
+
+import dev.qrowned.npc.api.NPC;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NPCSpatialIndexTest {
+
+    private NPCSpatialIndex index;
+    private World world;
+    private World otherWorld;
+
+    private static World mockWorld() {
+        World world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        return world;
+    }
+
+    private static NPC mockNPC(World world, double x, double z) {
+        NPC npc = mock(NPC.class);
+        when(npc.getLocation()).thenReturn(new Location(world, x, 64, z));
+        return npc;
+    }
+
+    private Set<NPC> near(World world, double x, double z, double radius) {
+        Set<NPC> npcs = new HashSet<>();
+        this.index.forEachNear(new Location(world, x, 64, z), radius, npcs::add);
+        return npcs;
+    }
+
+    @BeforeEach
+    void setUp() {
+        this.index = new NPCSpatialIndex();
+        this.world = mockWorld();
+        this.otherWorld = mockWorld();
+    }
+
+    @Test
+    void findsOnlyNpcsInTouchedCells() {
+        NPC near = mockNPC(this.world, 10, 10);
+        NPC nextCell = mockNPC(this.world, 40, -5);
+        NPC far = mockNPC(this.world, 500, 500);
+        this.index.add(near);
+        this.index.add(nextCell);
+        this.index.add(far);
+
+        assertEquals(Set.of(near, nextCell), this.near(this.world, 20, 0, 20));
+        assertEquals(Set.of(far), this.near(this.world, 500, 500, 1));
+    }
+
+    @Test
+    void handlesNegativeCoordinates() {
+        NPC npc = mockNPC(this.world, -0.5, -17);
+        this.index.add(npc);
+
+        assertEquals(Set.of(npc), this.near(this.world, -1, -17, 0));
+        assertTrue(this.near(this.world, 1, 1, 0).isEmpty());
+    }
+
+    @Test
+    void separatesWorlds() {
+        NPC npc = mockNPC(this.world, 0, 0);
+        this.index.add(npc);
+
+        assertTrue(this.near(this.otherWorld, 0, 0, 32).isEmpty());
+    }
+
+    @Test
+    void removesNpcs() {
+        NPC first = mockNPC(this.world, 0, 0);
+        NPC second = mockNPC(this.world, 1, 1);
+        this.index.add(first);
+        this.index.add(second);
+
+        this.index.remove(first);
+        assertEquals(Set.of(second), this.near(this.world, 0, 0, 8));
+
+        this.index.remove(second);
+        assertTrue(this.near(this.world, 0, 0, 8).isEmpty());
+    }
+
+}
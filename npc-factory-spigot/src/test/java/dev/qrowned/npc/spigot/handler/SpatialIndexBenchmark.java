@@ -0,0 +1,100 @@
+package dev.qrowned.npc.spigot.handler;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the lookup of the npcs near a player through the chunk grid backing
+ * {@link NPCSpatialIndex} with a linear scan over every npc, on npcs spread over a 4096 by 4096 block
+ * area. Both variants filter the candidates by their exact distance, the grid only limits the
+ * candidates to the touched cells. Works on plain coordinates, npcs are represented by their index.
+ * Run through {@link #main(String[])} after compiling the test sources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialIndexBenchmark {
+
+    private static final UUID WORLD_ID = new UUID(0, 0);
+    private static final double AREA = 4096;
+    private static final double RADIUS = 48;
+    private static final int QUERIES = 1024;
+
+    @Param({"100", "1000", "10000"})
+    public int npcs;
+
+    private double[] npcCoordinates;
+    private final double[] queryCoordinates = new double[QUERIES * 2];
+    private final ChunkGrid<Integer> grid = new ChunkGrid<>();
+
+    private int query;
+    private int found;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SpatialIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        this.npcCoordinates = new double[this.npcs * 2];
+        for (int i = 0; i < this.npcs; i++) {
+            this.npcCoordinates[i * 2] = random.nextDouble(AREA);
+            this.npcCoordinates[i * 2 + 1] = random.nextDouble(AREA);
+            this.grid.add(WORLD_ID, this.npcCoordinates[i * 2], this.npcCoordinates[i * 2 + 1], i);
+        }
+        for (int i = 0; i < QUERIES * 2; i++) {
+            this.queryCoordinates[i] = random.nextDouble(AREA);
+        }
+    }
+
+    @Benchmark
+    public int gridLookup() {
+        int query = this.nextQuery();
+        double x = this.queryCoordinates[query * 2];
+        double z = this.queryCoordinates[query * 2 + 1];
+
+        this.found = 0;
+        this.grid.forEachNear(WORLD_ID, x, z, RADIUS, npc -> {
+            if (this.isInRange(npc, x, z)) {
+                this.found++;
+            }
+        });
+        return this.found;
+    }
+
+    @Benchmark
+    public int linearScan() {
+        int query = this.nextQuery();
+        double x = this.queryCoordinates[query * 2];
+        double z = this.queryCoordinates[query * 2 + 1];
+
+        int found = 0;
+        for (int npc = 0; npc < this.npcs; npc++) {
+            if (this.isInRange(npc, x, z)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private int nextQuery() {
+        return this.query = (this.query + 1) & (QUERIES - 1);
+    }
+
+    private boolean isInRange(int npc, double x, double z) {
+        double xDifference = this.npcCoordinates[npc * 2] - x;
+        double zDifference = this.npcCoordinates[npc * 2 + 1] - z;
+        return xDifference * xDifference + zDifference * zDifference <= RADIUS * RADIUS;
+    }
+
+}
@@ -0,0 +1,132 @@
+package dev.qrowned.npc.spigot.handler;
+
+import dev.qrowned.npc.api.NPC;
+import dev.qrowned.npc.api.event.PlayerNPCHideEvent;
+import dev.qrowned.npc.api.modifier.PacketBatcher;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+class VisibilityDecisionTest {
+
+    private NPC npc;
+    private Player player;
+    private Plugin plugin;
+    private PacketBatcher batcher;
+    private NPCRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        this.npc = mock(NPC.class);
+        this.player = mock(Player.class);
+        this.plugin = mock(Plugin.class);
+        this.batcher = new PacketBatcher();
+        this.registry = new NPCRegistry();
+        this.registry.put(this.npc);
+    }
+
+    @Test
+    void showSkipsNpcsAlreadyShown() {
+        when(this.npc.isShownFor(this.player)).thenReturn(true);
+
+        assertFalse(VisibilityDecision.show(this.npc, this.player).apply(this.registry, this.plugin, 10, this.batcher));
+        verify(this.npc, never()).show(any(), any(), anyLong(), anyBoolean());
+    }
+
+    @Test
+    void showReportsIfTheNpcWasShown() {
+        when(this.npc.isShownFor(this.player)).thenReturn(false, true);
+
+        assertTrue(VisibilityDecision.show(this.npc, this.player).apply(this.registry, this.plugin, 10, this.batcher));
+        verify(this.npc).show(this.player, this.plugin, 10, false);
+    }
+
+    @Test
+    void showIgnoresPlayersWhichLeftInTheMeantime() {
+        when(this.npc.isShownFor(this.player)).thenReturn(false);
+
+        assertFalse(VisibilityDecision.show(this.npc, this.player).apply(this.registry, this.plugin, 10, this.batcher));
+    }
+
+    @Test
+    void showSkipsRemovedNpcs() {
+        when(this.npc.isShownFor(this.player)).thenReturn(false);
+        this.registry.remove(this.npc.getEntityId());
+
+        assertFalse(VisibilityDecision.show(this.npc, this.player).apply(this.registry, this.plugin, 10, this.batcher));
+        verify(this.npc, never()).show(any(), any(), anyLong(), anyBoolean());
+    }
+
+    @Test
+    void hideSkipsNpcsAlreadyHidden() {
+        when(this.npc.isShownFor(this.player)).thenReturn(false);
+
+        VisibilityDecision decision = VisibilityDecision.hide(this.npc, this.player, PlayerNPCHideEvent.Reason.SPAWN_DISTANCE);
+        assertFalse(decision.apply(this.registry, this.plugin, 10, this.batcher));
+        verify(this.npc, never()).markHidden(any(), any(), any());
+    }
+
+    @Test
+    void hideMarksShownNpcsHidden() {
+        when(this.npc.isShownFor(this.player)).thenReturn(true);
+
+        VisibilityDecision decision = VisibilityDecision.hide(this.npc, this.player, PlayerNPCHideEvent.Reason.SPAWN_DISTANCE);
+        assertTrue(decision.apply(this.registry, this.plugin, 10, this.batcher));
+        verify(this.npc).markHidden(this.player, this.plugin, PlayerNPCHideEvent.Reason.SPAWN_DISTANCE);
+    }
+
+    @Test
+    void lookAtSkipsKnownRotations() {
+        when(this.npc.isShownFor(this.player)).thenReturn(true);
+        when(this.npc.updateSentRotation(any(), anyInt())).thenReturn(false);
+
+        assertFalse(VisibilityDecision.lookAt(this.npc, this.player, 0x1020).apply(this.registry, this.plugin, 10, this.batcher));
+        verify(this.npc, never()).rotation();
+    }
+
+    @Test
+    void parallelEvaluationKeepsThePlayerOrder() {
+        List<Player> players = IntStream.range(0, 1000)
+                .mapToObj(i -> mock(Player.class))
+                .collect(Collectors.toList());
+        List<NPC> npcs = List.of(mock(NPC.class), mock(NPC.class), mock(NPC.class));
+
+        List<VisibilityDecision> expected = new ArrayList<>();
+        List<VisibilityDecision> sequential = DefaultNPCHandler.evaluate(null, players, player -> {
+            List<VisibilityDecision> decisions = new ArrayList<>();
+            npcs.forEach(npc -> decisions.add(VisibilityDecision.show(npc, player)));
+            expected.addAll(decisions);
+            return decisions;
+        });
+        assertEquals(expected, sequential);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<VisibilityDecision> parallel = DefaultNPCHandler.evaluate(pool, players, player -> {
+                // delays the evaluation of some players, so that later players finish first
+                if (players.indexOf(player) % 7 == 0) {
+                    Thread.yield();
+                }
+                int offset = players.indexOf(player) * npcs.size();
+                return Collections.unmodifiableList(expected.subList(offset, offset + npcs.size()));
+            });
+            assertEquals(expected, parallel);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package dev.qrowned.npc.spigot.handler;
+
+import dev.qrowned.npc.api.NPC;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures how the visibility evaluation of {@link DefaultNPCHandler} scales with the amount of
+ * evaluating threads, on a synthetic load of 2000 npcs and 500 players spread over a 512 by 512 block
+ * area. Every player is checked against every npc by distance, like a full evaluation without the
+ * spatial index. Players and npcs are mocks which are only used as keys of the decisions, the
+ * evaluation itself works on plain coordinates. Run through {@link #main(String[])} after compiling
+ * the test sources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisibilityEvaluationBenchmark {
+
+    private static final int NPCS = 2000;
+    private static final int PLAYERS = 500;
+    private static final double AREA = 512;
+    private static final double SPAWN_DISTANCE = 48 * 48;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int parallelism;
+
+    private final double[] npcCoordinates = new double[NPCS * 2];
+    private final NPC[] npcs = new NPC[NPCS];
+    private final List<Player> players = new ArrayList<>(PLAYERS);
+    private final Map<Player, Integer> playerIndices = new IdentityHashMap<>(PLAYERS);
+    private final double[] playerCoordinates = new double[PLAYERS * 2];
+
+    private ForkJoinPool pool;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VisibilityEvaluationBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < NPCS; i++) {
+            this.npcs[i] = mock(NPC.class);
+            this.npcCoordinates[i * 2] = random.nextDouble(AREA);
+            this.npcCoordinates[i * 2 + 1] = random.nextDouble(AREA);
+        }
+        for (int i = 0; i < PLAYERS; i++) {
+            Player player = mock(Player.class);
+            this.players.add(player);
+            this.playerIndices.put(player, i);
+            this.playerCoordinates[i * 2] = random.nextDouble(AREA);
+            this.playerCoordinates[i * 2 + 1] = random.nextDouble(AREA);
+        }
+
+        this.pool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism) : null;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (this.pool != null) {
+            this.pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return DefaultNPCHandler.evaluate(this.pool, this.players, this::evaluatePlayer).size();
+    }
+
+    private List<VisibilityDecision> evaluatePlayer(Player player) {
+        int index = this.playerIndices.get(player);
+        double x = this.playerCoordinates[index * 2];
+        double z = this.playerCoordinates[index * 2 + 1];
+
+        List<VisibilityDecision> decisions = new ArrayList<>();
+        for (int i = 0; i < NPCS; i++) {
+            double xDifference = this.npcCoordinates[i * 2] - x;
+            double zDifference = this.npcCoordinates[i * 2 + 1] - z;
+            if (xDifference * xDifference + zDifference * zDifference <= SPAWN_DISTANCE) {
+                decisions.add(VisibilityDecision.show(this.npcs[i], player));
+            }
+        }
+        return decisions;
+    }
+
+}